@@ -9,6 +9,11 @@ public class AdminUnit {
     List<AdminUnit> children;
     AdminUnit parent;
     BoundingBox bbox;
+    /**
+     * Identyfikatory z pliku CSV (kolumny id i parent) - 0 dla jednostek utworzonych w inny sposób
+     */
+    long id;
+    long parentId;
 
     public void setChildren(List<AdminUnit> children) {
         this.children = children;
@@ -47,17 +52,29 @@ public class AdminUnit {
     }
 
     void fixMissingValues() {
+        fixMissingValues(parent == null ? 0 : parent.findEstimatedDensity());
+    }
+
+    /**
+     * Uzupełnia brakujące density i population (oba równe 0) na podstawie gęstości szacowanej dla rodzica
+     * @param parentDensity - wynik findEstimatedDensity() rodzica (0, gdy nie ma rodzica)
+     */
+    void fixMissingValues(double parentDensity) {
         if (density == 0 && population == 0) {
-            density = parent.findEstimatedDensity();
+            density = parentDensity;
             population = (int)(area * density);
         }
     }
 
+    /**
+     * Zwraca density tej jednostki albo najbliższego przodka z niezerowym density, a gdy takiego nie ma - 0
+     */
     double findEstimatedDensity() {
-        double density = this.density;
-        while (density == 0 && parent != null) {
-            density = parent.findEstimatedDensity();
+        for (AdminUnit unit = this; unit != null; unit = unit.parent) {
+            if (unit.density != 0) {
+                return unit.density;
+            }
         }
-        return density;
+        return 0;
     }
 }
\ No newline at end of file
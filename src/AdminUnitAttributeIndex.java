@@ -0,0 +1,289 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Indeksy pomocnicze po atrybutach jednostek: dokładna nazwa (hash), prefiks nazwy (pozycje posortowane po nazwie),
+ * admin_level (kubełki) oraz przedziały population i area (pozycje posortowane po wartości).
+ * Każdy indeks jest budowany z kolumn AdminUnitTable przy pierwszym zapytaniu, które go potrzebuje.
+ * Wszystkie zapytania zwracają pozycje jednostek rosnąco, czyli w kolejności listy,
+ * a metody count...() - liczbę tych pozycji bez ich kopiowania.
+ */
+class AdminUnitAttributeIndex {
+    private static final int[] NO_POSITIONS = new int[0];
+
+    private final AdminUnitTable table;
+    private Map<String, int[]> positionsByName;
+    private String[] sortedNames;
+    private int[] positionsSortedByName;
+    private Map<Integer, int[]> positionsByLevel;
+    private int[] sortedPopulation;
+    private int[] positionsSortedByPopulation;
+    private double[] sortedArea;
+    private int[] positionsSortedByArea;
+
+    AdminUnitAttributeIndex(AdminUnitTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Zwraca pozycje jednostek o nazwie równej name
+     */
+    int[] withName(String name) {
+        return namesIndex().getOrDefault(name, NO_POSITIONS);
+    }
+
+    int countWithName(String name) {
+        return withName(name).length;
+    }
+
+    /**
+     * Zwraca pozycje jednostek, których nazwa zaczyna się od prefix - wyszukiwanie binarne w nazwach posortowanych
+     * tak jak String.compareTo(), gdzie nazwy z tym samym prefiksem leżą obok siebie
+     */
+    int[] withNamePrefix(String prefix) {
+        int from = firstWithNamePrefix(prefix);
+        return sortedRange(positionsSortedByName, from, endOfNamePrefix(prefix, from));
+    }
+
+    int countWithNamePrefix(String prefix) {
+        int from = firstWithNamePrefix(prefix);
+        return endOfNamePrefix(prefix, from) - from;
+    }
+
+    /**
+     * Zwraca pozycje jednostek z danym admin_level
+     */
+    int[] withLevel(int adminLevel) {
+        return levelsIndex().getOrDefault(adminLevel, NO_POSITIONS);
+    }
+
+    int countWithLevel(int adminLevel) {
+        return withLevel(adminLevel).length;
+    }
+
+    /**
+     * Zwraca pozycje jednostek z population w przedziale [min, max]
+     */
+    int[] withPopulationBetween(int min, int max) {
+        int from = firstWithPopulationAtLeast(min);
+        return sortedRange(positionsSortedByPopulation, from, endOfPopulationAtMost(max));
+    }
+
+    int countWithPopulationBetween(int min, int max) {
+        return Math.max(0, endOfPopulationAtMost(max) - firstWithPopulationAtLeast(min));
+    }
+
+    /**
+     * Zwraca pozycje jednostek z area w przedziale [min, max]
+     */
+    int[] withAreaBetween(double min, double max) {
+        int from = firstWithAreaAtLeast(min);
+        return sortedRange(positionsSortedByArea, from, endOfAreaAtMost(max));
+    }
+
+    int countWithAreaBetween(double min, double max) {
+        return Math.max(0, endOfAreaAtMost(max) - firstWithAreaAtLeast(min));
+    }
+
+    private Map<String, int[]> namesIndex() {
+        if (positionsByName == null) {
+            Map<String, List<Integer>> rowsByName = new HashMap<>();
+            for (int row = 0; row < table.size(); row++) {
+                String name = table.name(row);
+                if (name != null) {
+                    rowsByName.computeIfAbsent(name, key -> new ArrayList<>(1)).add(row);
+                }
+            }
+            positionsByName = toArrays(rowsByName);
+        }
+        return positionsByName;
+    }
+
+    private Map<Integer, int[]> levelsIndex() {
+        if (positionsByLevel == null) {
+            Map<Integer, List<Integer>> rowsByLevel = new HashMap<>();
+            for (int row = 0; row < table.size(); row++) {
+                rowsByLevel.computeIfAbsent(table.adminLevel(row), level -> new ArrayList<>()).add(row);
+            }
+            positionsByLevel = toArrays(rowsByLevel);
+        }
+        return positionsByLevel;
+    }
+
+    private static <K> Map<K, int[]> toArrays(Map<K, List<Integer>> rowsByKey) {
+        Map<K, int[]> positions = new HashMap<>();
+        for (Map.Entry<K, List<Integer>> entry : rowsByKey.entrySet()) {
+            positions.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+        }
+        return positions;
+    }
+
+    private String[] sortedNames() {
+        if (sortedNames == null) {
+            int[] rows = new int[table.size()];
+            int count = 0;
+            for (int row = 0; row < table.size(); row++) {
+                if (table.name(row) != null) {
+                    rows[count++] = row;
+                }
+            }
+            String[] names = new String[count];
+            for (int i = 0; i < count; i++) {
+                names[i] = table.name(rows[i]);
+            }
+            int[] order = PrimitiveSort.order(names);
+            positionsSortedByName = new int[count];
+            String[] sorted = new String[count];
+            for (int i = 0; i < count; i++) {
+                positionsSortedByName[i] = rows[order[i]];
+                sorted[i] = names[order[i]];
+            }
+            sortedNames = sorted;
+        }
+        return sortedNames;
+    }
+
+    private int[] sortedPopulation() {
+        if (sortedPopulation == null) {
+            long[] keys = new long[table.size()];
+            for (int row = 0; row < keys.length; row++) {
+                keys[row] = ((long) table.population(row) << 32) | row;
+            }
+            Arrays.sort(keys);
+            positionsSortedByPopulation = new int[keys.length];
+            int[] population = new int[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                population[i] = (int) (keys[i] >> 32);
+                positionsSortedByPopulation[i] = (int) keys[i];
+            }
+            sortedPopulation = population;
+        }
+        return sortedPopulation;
+    }
+
+    /**
+     * Wartości NaN są sortowane na końcu i nie należą do żadnego przedziału
+     */
+    private double[] sortedArea() {
+        if (sortedArea == null) {
+            long[] keys = new long[table.size()];
+            for (int row = 0; row < keys.length; row++) {
+                keys[row] = PrimitiveSort.sortableKey(table.area(row));
+            }
+            positionsSortedByArea = PrimitiveSort.order(keys);
+            double[] area = new double[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                area[i] = table.area(positionsSortedByArea[i]);
+            }
+            sortedArea = area;
+        }
+        return sortedArea;
+    }
+
+    private int firstWithNamePrefix(String prefix) {
+        String[] names = sortedNames();
+        int from = Arrays.binarySearch(names, prefix);
+        if (from < 0) {
+            return -from - 1;
+        }
+        while (from > 0 && names[from - 1].equals(prefix)) {
+            from--;
+        }
+        return from;
+    }
+
+    private int endOfNamePrefix(String prefix, int from) {
+        String[] names = sortedNames();
+        int lo = from;
+        int hi = names.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (names[mid].startsWith(prefix)) {
+                lo = mid + 1;
+            }
+            else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private int firstWithPopulationAtLeast(int min) {
+        int[] population = sortedPopulation();
+        int lo = 0;
+        int hi = population.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (population[mid] < min) {
+                lo = mid + 1;
+            }
+            else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private int endOfPopulationAtMost(int max) {
+        int[] population = sortedPopulation();
+        int lo = 0;
+        int hi = population.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (population[mid] <= max) {
+                lo = mid + 1;
+            }
+            else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private int firstWithAreaAtLeast(double min) {
+        double[] area = sortedArea();
+        int lo = 0;
+        int hi = area.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (area[mid] < min) {
+                lo = mid + 1;
+            }
+            else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private int endOfAreaAtMost(double max) {
+        double[] area = sortedArea();
+        int lo = 0;
+        int hi = area.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (area[mid] <= max) {
+                lo = mid + 1;
+            }
+            else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Kopiuje positions[from, to) i sortuje rosnąco
+     */
+    private static int[] sortedRange(int[] positions, int from, int to) {
+        if (from >= to) {
+            return NO_POSITIONS;
+        }
+        int[] result = Arrays.copyOfRange(positions, from, to);
+        Arrays.sort(result);
+        return result;
+    }
+}
@@ -0,0 +1,170 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * Indeks środków BoundingBox jednostek listy - osobne drzewo k-d dla każdego admin_level.
+ * Jednostki z pustym BoundingBox nie mają środka i nie są indeksowane.
+ */
+class AdminUnitCenterIndex {
+    private final AdminUnitTable table;
+    private final Map<Integer, CenterTree> trees = new HashMap<>();
+
+    AdminUnitCenterIndex(AdminUnitTable table) {
+        this.table = table;
+        Map<Integer, List<Integer>> positionsByLevel = new HashMap<>();
+        for (int i = 0; i < table.size(); i++) {
+            if (!Double.isNaN(table.xmin(i))) {
+                positionsByLevel.computeIfAbsent(table.adminLevel(i), level -> new ArrayList<>()).add(i);
+            }
+        }
+        for (Map.Entry<Integer, List<Integer>> entry : positionsByLevel.entrySet()) {
+            List<Integer> positions = entry.getValue();
+            int n = positions.size();
+            int[] ids = new int[n];
+            double[] latitudes = new double[n];
+            double[] longitudes = new double[n];
+            for (int i = 0; i < n; i++) {
+                ids[i] = positions.get(i);
+                latitudes[i] = centerY(ids[i]);
+                longitudes[i] = centerX(ids[i]);
+            }
+            trees.put(entry.getKey(), new CenterTree(ids, latitudes, longitudes));
+        }
+    }
+
+    /**
+     * Środek BoundingBox z wiersza tabeli - tak jak BoundingBox.getCenterY()
+     */
+    private double centerY(int position) {
+        return (table.ymax(position) + table.ymin(position)) / 2;
+    }
+
+    /**
+     * Środek BoundingBox z wiersza tabeli - tak jak BoundingBox.getCenterX()
+     */
+    private double centerX(int position) {
+        return (table.xmax(position) + table.xmin(position)) / 2;
+    }
+
+    /**
+     * @return pozycje co najwyżej k jednostek o poziomie spełniającym levelFilter, od najbliższej
+     * @throws IllegalArgumentException gdy k jest ujemne
+     */
+    int[] nearest(double lat, double lon, int k, IntPredicate levelFilter) {
+        CenterTree.NearestHeap heap = new CenterTree.NearestHeap(checkK(k));
+        for (Map.Entry<Integer, CenterTree> entry : trees.entrySet()) {
+            if (levelFilter.test(entry.getKey())) {
+                entry.getValue().nearest(lat, lon, heap);
+            }
+        }
+        return heap.drainAscending();
+    }
+
+    /**
+     * @return pozycje jednostek, których środek leży w odległości (haversine) co najwyżej km, od najbliższej
+     * (przy równej odległości - w kolejności listy)
+     */
+    int[] withinRadius(double lat, double lon, double km) {
+        // margines chroni przed odrzuceniem punktu na granicy z powodu błędów zaokrągleń
+        double maxChordSquared = CenterTree.chordSquared(km) * (1 + 1e-9) + 1e-15;
+        Hits hits = new Hits();
+        for (CenterTree tree : trees.values()) {
+            tree.withinChord(lat, lon, maxChordSquared, position -> {
+                double distance = BoundingBox.haversine(lat, lon, centerY(position), centerX(position));
+                if (distance <= km) {
+                    hits.add(position, distance);
+                }
+            });
+        }
+        return hits.byDistance();
+    }
+
+    /**
+     * Wyszukuje najbliższe jednostki przeglądając całą listę, bez budowania indeksu - wynik jak z nearest()
+     * (poza kolejnością jednostek w tej samej odległości)
+     * @throws IllegalArgumentException gdy k jest ujemne
+     */
+    static int[] nearest(List<AdminUnit> units, double lat, double lon, int k, IntPredicate levelFilter) {
+        CenterTree.NearestHeap heap = new CenterTree.NearestHeap(checkK(k));
+        int position = 0;
+        for (AdminUnit unit : units) {
+            if (hasCenter(unit) && levelFilter.test(unit.adminLevel)) {
+                heap.offer(position, CenterTree.distanceSquared(lat, lon, unit.bbox.getCenterY(), unit.bbox.getCenterX()));
+            }
+            position++;
+        }
+        return heap.drainAscending();
+    }
+
+    /**
+     * Wyszukuje jednostki w promieniu km przeglądając całą listę, bez budowania indeksu - wynik jak z withinRadius()
+     */
+    static int[] withinRadius(List<AdminUnit> units, double lat, double lon, double km) {
+        Hits hits = new Hits();
+        int position = 0;
+        for (AdminUnit unit : units) {
+            if (hasCenter(unit)) {
+                double distance = BoundingBox.haversine(lat, lon, unit.bbox.getCenterY(), unit.bbox.getCenterX());
+                if (distance <= km) {
+                    hits.add(position, distance);
+                }
+            }
+            position++;
+        }
+        return hits.byDistance();
+    }
+
+    private static boolean hasCenter(AdminUnit unit) {
+        return unit.bbox != null && !unit.bbox.isEmpty();
+    }
+
+    private static int checkK(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: %d".formatted(k));
+        }
+        return k;
+    }
+
+    /**
+     * Znalezione pozycje i ich odległości w powiększanych tablicach
+     */
+    private static class Hits {
+        private int[] positions = new int[16];
+        private double[] distances = new double[16];
+        private int size;
+
+        void add(int position, double distance) {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+                distances = Arrays.copyOf(distances, size * 2);
+            }
+            positions[size] = position;
+            distances[size] = distance;
+            size++;
+        }
+
+        /**
+         * Sortuje pozycje stabilnie najpierw po pozycji, potem po odległości
+         */
+        int[] byDistance() {
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = positions[i];
+            }
+            int[] byPosition = PrimitiveSort.order(keys);
+            for (int i = 0; i < size; i++) {
+                keys[i] = PrimitiveSort.sortableKey(distances[byPosition[i]]);
+            }
+            int[] order = PrimitiveSort.order(keys);
+            int[] result = new int[size];
+            for (int i = 0; i < size; i++) {
+                result[i] = positions[byPosition[order[i]]];
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Indeks do wyszukiwania jednostek, których BoundingBox zawiera punkt (x, y).
+ * Zapytanie schodzi po hierarchii od jednostek bez rodzica do dzieci i odwiedza tylko poddrzewa,
+ * których obszar może zawierać punkt. Obszarem poddrzewa jest suma BoundingBox jednostki i wszystkich
+ * jej potomków - BoundingBox dziecka nie zawsze mieści się w BoundingBox rodzica.
+ * Dzieci jednostek, które mają ich więcej niż NODE_CAPACITY, są przeszukiwane R-drzewem.
+ */
+class AdminUnitContainmentIndex {
+    private static final int NODE_CAPACITY = 16;
+
+    private final int size;
+    /**
+     * Pozycje dzieci jednostki i to children[childOffsets[i]..childOffsets[i + 1]),
+     * dzieci wirtualnego korzenia (jednostek bez rodzica na liście) mają indeks size
+     */
+    private final int[] childOffsets;
+    private final int[] children;
+    private final double[] xmin;
+    private final double[] ymin;
+    private final double[] xmax;
+    private final double[] ymax;
+    /**
+     * R-drzewa obszarów dzieci - tylko dla węzłów z więcej niż NODE_CAPACITY dziećmi
+     */
+    private final BoundingBoxTree[] childTrees;
+    private final AdminUnitTable table;
+
+    AdminUnitContainmentIndex(AdminUnitTable table) {
+        this.table = table;
+        size = table.size();
+        int[] parents = new int[size];
+        childOffsets = new int[size + 2];
+        for (int i = 0; i < size; i++) {
+            int parent = table.parent(i);
+            parents[i] = parent < 0 ? size : parent;
+            childOffsets[parents[i] + 1]++;
+        }
+        for (int i = 0; i <= size; i++) {
+            childOffsets[i + 1] += childOffsets[i];
+        }
+        children = new int[size];
+        int[] next = Arrays.copyOf(childOffsets, size + 1);
+        for (int i = 0; i < size; i++) {
+            children[next[parents[i]]++] = i;
+        }
+
+        xmin = new double[size + 1];
+        ymin = new double[size + 1];
+        xmax = new double[size + 1];
+        ymax = new double[size + 1];
+        for (int i = 0; i < size; i++) {
+            xmin[i] = table.xmin(i);
+            ymin[i] = table.ymin(i);
+            xmax[i] = table.xmax(i);
+            ymax[i] = table.ymax(i);
+        }
+        xmin[size] = ymin[size] = xmax[size] = ymax[size] = Double.NaN;
+
+        int[] order = preorder();
+        for (int i = order.length - 1; i > 0; i--) {
+            int node = order[i];
+            addToParent(node, parents[node]);
+        }
+
+        childTrees = new BoundingBoxTree[size + 1];
+        for (int node = 0; node <= size; node++) {
+            if (childOffsets[node + 1] - childOffsets[node] > NODE_CAPACITY) {
+                childTrees[node] = childTree(node);
+            }
+        }
+    }
+
+    /**
+     * Wywołuje action dla pozycji każdej jednostki, której BoundingBox zawiera punkt (x, y).
+     * Jednostki są podawane w kolejności przejścia hierarchii w głąb - rodzic przed swoimi dziećmi,
+     * a rodzeństwo w kolejności listy
+     */
+    void containing(double x, double y, IntConsumer action) {
+        visit(size, x, y, action, new int[NODE_CAPACITY]);
+    }
+
+    /**
+     * Wyszukuje jednostki zawierające punkt przeglądając całą listę, bez budowania indeksu - pozycje są podawane
+     * w tej samej kolejności co w containing(x, y, action). Rodzicem jest unit.parent, o ile jest na liście
+     */
+    static void containing(List<AdminUnit> units, double x, double y, IntConsumer action) {
+        List<Integer> hits = new ArrayList<>();
+        int position = 0;
+        for (AdminUnit unit : units) {
+            if (unit.bbox != null && unit.bbox.contains(x, y)) {
+                hits.add(position);
+            }
+            position++;
+        }
+        if (hits.isEmpty()) {
+            return;
+        }
+        Map<AdminUnit, Integer> positionOf = new HashMap<>(units.size() * 2);
+        position = 0;
+        for (AdminUnit unit : units) {
+            positionOf.put(unit, position++);
+        }
+        List<int[]> paths = new ArrayList<>(hits.size());
+        for (int hit : hits) {
+            int[] path = pathFromRoot(units, positionOf, hit);
+            if (path != null) {
+                paths.add(path);
+            }
+        }
+        paths.sort(Arrays::compare);
+        for (int[] path : paths) {
+            action.accept(path[path.length - 1]);
+        }
+    }
+
+    /**
+     * Zwraca pozycje przodków jednostki na liście i jej pozycję, od jednostki bez rodzica na liście,
+     * albo null, gdy rodzice tworzą cykl - takiej jednostki nie ma w hierarchii indeksu
+     */
+    private static int[] pathFromRoot(List<AdminUnit> units, Map<AdminUnit, Integer> positionOf, int position) {
+        int[] path = new int[8];
+        int length = 0;
+        Integer current = position;
+        while (current != null) {
+            if (length == units.size()) {
+                return null;
+            }
+            if (length == path.length) {
+                path = Arrays.copyOf(path, length * 2);
+            }
+            path[length++] = current;
+            current = positionOf.get(units.get(current).parent);
+        }
+        int[] fromRoot = new int[length];
+        for (int i = 0; i < length; i++) {
+            fromRoot[i] = path[length - 1 - i];
+        }
+        return fromRoot;
+    }
+
+    private void visit(int node, double x, double y, IntConsumer action, int[] buffer) {
+        // kolumny tabeli to BoundingBox jednostki, a xmin[node] itd. - obszar jej poddrzewa (pusty BoundingBox to NaN)
+        if (node != size && table.xmin(node) <= x && table.xmax(node) >= x
+                && table.ymin(node) <= y && table.ymax(node) >= y) {
+            action.accept(node);
+        }
+        if (childTrees[node] == null) {
+            for (int i = childOffsets[node]; i < childOffsets[node + 1]; i++) {
+                int child = children[i];
+                if (areaContains(child, x, y)) {
+                    visit(child, x, y, action, buffer);
+                }
+            }
+            return;
+        }
+        int[][] hits = {buffer};
+        int[] count = {0};
+        childTrees[node].search(x, y, x, y, child -> {
+            if (count[0] == hits[0].length) {
+                hits[0] = Arrays.copyOf(hits[0], count[0] * 2);
+            }
+            hits[0][count[0]++] = child;
+        });
+        int[] found = Arrays.copyOf(hits[0], count[0]);
+        Arrays.sort(found);
+        for (int child : found) {
+            visit(child, x, y, action, buffer);
+        }
+    }
+
+    private boolean areaContains(int node, double x, double y) {
+        return xmin[node] <= x && xmax[node] >= x && ymin[node] <= y && ymax[node] >= y;
+    }
+
+    /**
+     * Zwraca węzły osiągalne z wirtualnego korzenia w kolejności przejścia w głąb
+     */
+    private int[] preorder() {
+        int[] order = new int[size + 1];
+        int[] stack = new int[size + 1];
+        int count = 0;
+        int top = 0;
+        stack[top++] = size;
+        while (top > 0) {
+            int node = stack[--top];
+            order[count++] = node;
+            for (int i = childOffsets[node + 1] - 1; i >= childOffsets[node]; i--) {
+                stack[top++] = children[i];
+            }
+        }
+        return Arrays.copyOf(order, count);
+    }
+
+    /**
+     * Powiększa obszar poddrzewa parent o obszar poddrzewa node
+     */
+    private void addToParent(int node, int parent) {
+        if (Double.isNaN(xmin[node])) {
+            return;
+        }
+        if (Double.isNaN(xmin[parent])) {
+            xmin[parent] = xmin[node];
+            ymin[parent] = ymin[node];
+            xmax[parent] = xmax[node];
+            ymax[parent] = ymax[node];
+            return;
+        }
+        xmin[parent] = Math.min(xmin[parent], xmin[node]);
+        ymin[parent] = Math.min(ymin[parent], ymin[node]);
+        xmax[parent] = Math.max(xmax[parent], xmax[node]);
+        ymax[parent] = Math.max(ymax[parent], ymax[node]);
+    }
+
+    /**
+     * Buduje R-drzewo obszarów dzieci węzła - dzieci z pustym obszarem nie mogą zawierać punktu i są pomijane
+     */
+    private BoundingBoxTree childTree(int node) {
+        int n = childOffsets[node + 1] - childOffsets[node];
+        int[] ids = new int[n];
+        double[] cxmin = new double[n];
+        double[] cymin = new double[n];
+        double[] cxmax = new double[n];
+        double[] cymax = new double[n];
+        int count = 0;
+        for (int i = childOffsets[node]; i < childOffsets[node + 1]; i++) {
+            int child = children[i];
+            if (Double.isNaN(xmin[child])) {
+                continue;
+            }
+            ids[count] = child;
+            cxmin[count] = xmin[child];
+            cymin[count] = ymin[child];
+            cxmax[count] = xmax[child];
+            cymax[count] = ymax[child];
+            count++;
+        }
+        return new BoundingBoxTree(Arrays.copyOf(ids, count), Arrays.copyOf(cxmin, count), Arrays.copyOf(cymin, count),
+                Arrays.copyOf(cxmax, count), Arrays.copyOf(cymax, count));
+    }
+}
@@ -1,10 +1,68 @@
 import java.io.IOException;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.Collator;
 import java.util.*;
+import java.util.function.IntPredicate;
 import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class AdminUnitList {
+    private static final long MIN_CHUNK_SIZE = 256 * 1024;
+    static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 16;
+    /**
+     * Minimalna liczba jednostek, od której selectByName() i sortowania komparatorem działają równolegle
+     */
+    private static volatile int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+    private static final String[] BOUNDING_BOX_X_COLUMNS = {"x1", "x2", "x3", "x4"};
+    private static final String[] BOUNDING_BOX_Y_COLUMNS = {"y1", "y2", "y3", "y4"};
+    private static final String[] COLUMNS = {
+            "id", "parent", "name", "admin_level", "population", "area", "density",
+            "x1", "y1", "x2", "y2", "x3", "y3", "x4", "y4"
+    };
+    private static final String ANY_TEXT = ".*";
+    private static final int PATTERN_CACHE_SIZE = 64;
+    private static final LruCache<String, Pattern> PATTERNS = new LruCache<>(PATTERN_CACHE_SIZE);
+
     List<AdminUnit> units;
+    private AdminUnitTable table;
+    private AdminUnitSpatialIndex spatialIndex;
+    private AdminUnitCenterIndex centerIndex;
+    private AdminUnitContainmentIndex containmentIndex;
+    private AdminUnitAttributeIndex attributeIndex;
+
+    /**
+     * Kolumny pliku z jednostkami, wyszukane w nagłówku raz dla całego readera
+     */
+    private static class AdminUnitColumns {
+        final CSVReader.Column id;
+        final CSVReader.Column parent;
+        final CSVReader.Column name;
+        final CSVReader.Column adminLevel;
+        final CSVReader.Column population;
+        final CSVReader.Column area;
+        final CSVReader.Column density;
+        final CSVReader.Column[] x = new CSVReader.Column[BOUNDING_BOX_X_COLUMNS.length];
+        final CSVReader.Column[] y = new CSVReader.Column[BOUNDING_BOX_Y_COLUMNS.length];
+
+        AdminUnitColumns(CSVReader reader) {
+            id = reader.column("id");
+            parent = reader.column("parent");
+            name = reader.column("name");
+            adminLevel = reader.column("admin_level");
+            population = reader.column("population");
+            area = reader.column("area");
+            density = reader.column("density");
+            for (int i = 0; i < x.length; i++) {
+                x[i] = reader.column(BOUNDING_BOX_X_COLUMNS[i]);
+                y[i] = reader.column(BOUNDING_BOX_Y_COLUMNS[i]);
+            }
+        }
+    }
 
     public AdminUnitList() {
         this(new ArrayList<>());
@@ -14,52 +72,216 @@ public class AdminUnitList {
         this.units = units;
     }
 
+    /**
+     * Tworzy listę opartą na tabeli kolumnowej - obiekty AdminUnit są tworzone przy każdym odczycie z units
+     * i nie są zapamiętywane. Sortowanie przestawia tylko wiersze tabeli, a pierwsza operacja dodająca jednostki
+     * kopiuje je do zwykłej listy
+     * @param table - tabela jednostek
+     */
+    AdminUnitList(AdminUnitTable table) {
+        this.units = table.asList();
+        this.table = table;
+    }
+
     /**
      * Czyta rekordy pliku i dodaje do listy
      * @param filename nazwa pliku
      */
 
     public void read(String filename) throws IOException {
-        CSVReader reader = new CSVReader(filename);
-        Map<Long, AdminUnit> adminUnitsById = new HashMap<>();
-        Map<AdminUnit, Long> idOfAdminUnit = new HashMap<>();
-        Map<AdminUnit, Long> idOfParentIdByReference = new HashMap<>();
-        Map<Long,List<AdminUnit>> parentIdToChildren = new HashMap<>();
+        CSVReader reader = new CSVReader(Path.of(filename), CSVReader.DEFAULT_DELIMITER, COLUMNS);
+        link(readRecords(reader));
+    }
+
+    /**
+     * Czyta rekordy pliku równolegle i dodaje do listy.
+     * Plik jest dzielony na fragmenty zaczynające się od początku wiersza, fragmenty są parsowane
+     * w puli ForkJoin, a wyniki łączone w kolejności z pliku przed powiązaniem jednostek w hierarchię.
+     * Wynik jest taki sam jak dla read()
+     * @param filename nazwa pliku
+     */
+    public void readParallel(String filename) throws IOException {
+        CSVReader reader = new CSVReader(Path.of(filename), CSVReader.DEFAULT_DELIMITER, COLUMNS);
+        long size = Files.size(Path.of(filename));
+        int chunkCount = (int) Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() * 4L, size / MIN_CHUNK_SIZE));
+        List<CSVReader> chunks = reader.splitIntoChunks(chunkCount);
+
+        List<AdminUnit> records;
+        try {
+            records = chunks.parallelStream()
+                    .map(chunk -> {
+                        try {
+                            return readRecords(chunk);
+                        }
+                        catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    })
+                    .flatMap(List::stream)
+                    .toList();
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        link(records);
+    }
+
+    /**
+     * Zapisuje listę w binarnym formacie AdminUnitSnapshot
+     * @param filename nazwa pliku
+     */
+    public void writeSnapshot(String filename) throws IOException {
+        AdminUnitSnapshot.write(units, Path.of(filename));
+    }
+
+    /**
+     * Dodaje do listy jednostki zapisane przez writeSnapshot() - bez parsowania CSV,
+     * wiązania hierarchii i uzupełniania brakujących wartości
+     * @param filename nazwa pliku
+     */
+    public void readSnapshot(String filename) throws IOException {
+        mutableUnits().addAll(AdminUnitSnapshot.read(Path.of(filename)));
+        invalidateIndexes();
+    }
 
+    /**
+     * Tworzy listę, której jednostki są czytane bezpośrednio z pliku zapisanego przez writeSnapshot(),
+     * mapowanego do pamięci - kolumny nie są kopiowane na stertę
+     * @param filename nazwa pliku
+     * @return lista oparta na tabeli kolumnowej
+     */
+    static AdminUnitList mapSnapshot(String filename) throws IOException {
+        return new AdminUnitList(AdminUnitSnapshot.mapTable(Path.of(filename)));
+    }
+
+    /**
+     * Zwraca listę z tymi samymi danymi przechowywanymi poza stertą (w buforze bezpośrednim)
+     * @return nowa lista oparta na tabeli kolumnowej poza stertą
+     */
+    AdminUnitList offHeap() throws IOException {
+        return new AdminUnitList(OffHeapAdminUnitTable.copyOf(table()));
+    }
+
+    private List<AdminUnit> readRecords(CSVReader reader) throws IOException {
+        List<AdminUnit> records = new ArrayList<>();
+        AdminUnitColumns columns = new AdminUnitColumns(reader);
         while (reader.next()){
-            AdminUnit adminUnit = getAdminUnitFromReader(reader);
-            long parentId;
-            try{
-                parentId = reader.getLong("parent");
-            }
-            catch (NumberFormatException e){
-                parentId = 0L;
-            }
-            Long id = reader.getLong("id");
-            adminUnitsById.put(id, adminUnit);
-            idOfAdminUnit.put(adminUnit, id);
-            idOfParentIdByReference.put(adminUnit, parentId);
-            units.add(adminUnit);
-
-            if (!parentIdToChildren.containsKey(parentId)){
-                parentIdToChildren.put(parentId, new ArrayList<>());
-                parentIdToChildren.get(parentId).add(adminUnit);
+            AdminUnit adminUnit = getAdminUnitFromReader(columns);
+            adminUnit.parentId = columns.parent.getLongOrDefault(0L);
+            adminUnit.id = columns.id.getLong();
+            records.add(adminUnit);
+        }
+        return records;
+    }
+
+    /**
+     * Dodaje jednostki do listy i ustawia ich rodziców oraz dzieci na podstawie identyfikatorów.
+     * Identyfikatory są zamieniane na numery wierszy przez IdIndex, a dzieci wszystkich jednostek
+     * leżą w jednej tablicy pogrupowane po rodzicu (CSR) - children jednostki to widok jej przedziału
+     * @param records jednostki w kolejności z pliku
+     */
+    private void link(List<AdminUnit> records) {
+        int n = records.size();
+        long[] ids = new long[n];
+        for (int row = 0; row < n; row++) {
+            ids[row] = records.get(row).id;
+        }
+        IdIndex rowsById = new IdIndex(ids);
+
+        int[] parents = new int[n];
+        int[] childOffsets = new int[n + 1];
+        for (int row = 0; row < n; row++) {
+            int parent = rowsById.get(records.get(row).parentId);
+            parents[row] = parent;
+            if (parent != IdIndex.ABSENT) {
+                childOffsets[parent + 1]++;
             }
-            else {
-                parentIdToChildren.get(parentId).add(adminUnit);
+        }
+        for (int row = 0; row < n; row++) {
+            childOffsets[row + 1] += childOffsets[row];
+        }
+        int[] childRows = new int[childOffsets[n]];
+        AdminUnit[] children = new AdminUnit[childRows.length];
+        int[] next = Arrays.copyOf(childOffsets, n);
+        for (int row = 0; row < n; row++) {
+            if (parents[row] != IdIndex.ABSENT) {
+                int index = next[parents[row]]++;
+                childRows[index] = row;
+                children[index] = records.get(row);
             }
-
         }
 
-        for (AdminUnit unit : units) {
-            var parentId = idOfParentIdByReference.get(unit);
-            var parent = adminUnitsById.get(parentId);
-            unit.setParent(parent);
+        List<AdminUnit> allChildren = Arrays.asList(children);
+        List<AdminUnit> list = mutableUnits();
+        for (int row = 0; row < n; row++) {
+            AdminUnit unit = records.get(row);
+            unit.setParent(parents[row] == IdIndex.ABSENT ? null : records.get(parents[row]));
+            // jednostki z tym samym id mają wspólne dzieci - przypisane do ostatniej z nich
+            int owner = rowsById.get(unit.id);
+            int from = childOffsets[owner];
+            int to = childOffsets[owner + 1];
+            unit.setChildren(from == to ? null : allChildren.subList(from, to));
+            list.add(unit);
+        }
+        fixMissingValues(records, parents, childOffsets, childRows);
+        invalidateIndexes();
+    }
 
-            unit.setChildren(parentIdToChildren.get(idOfAdminUnit.get(unit)));
+    /**
+     * Uzupełnia brakujące wartości jednostek jednym przejściem od korzeni w dół hierarchii.
+     * Gęstość szacowana dla każdego wiersza (AdminUnit.findEstimatedDensity()) jest zapamiętywana,
+     * więc dzieci korzystają z wyniku rodzica zamiast przechodzić po przodkach. Poddrzewa różnych korzeni
+     * są niezależne i dla dużych list są przetwarzane równolegle
+     * @param records jednostki w kolejności z pliku
+     * @param parents wiersz rodzica dla każdego wiersza (IdIndex.ABSENT - brak)
+     * @param childOffsets początek dzieci każdego wiersza w childRows
+     * @param childRows wiersze dzieci pogrupowane po rodzicu
+     */
+    private static void fixMissingValues(List<AdminUnit> records, int[] parents, int[] childOffsets, int[] childRows) {
+        int n = records.size();
+        double[] estimatedDensity = new double[n];
+        boolean[] fixed = new boolean[n];
+        IntStream roots = IntStream.range(0, n).filter(row -> parents[row] == IdIndex.ABSENT);
+        if (n >= parallelThreshold) {
+            roots = roots.parallel();
         }
-        fixMissingValues();
+        roots.forEach(root -> {
+            int[] stack = new int[16];
+            int top = 0;
+            stack[top++] = root;
+            while (top > 0) {
+                int row = stack[--top];
+                AdminUnit unit = records.get(row);
+                double parentDensity = parents[row] == IdIndex.ABSENT ? 0 : estimatedDensity[parents[row]];
+                unit.fixMissingValues(parentDensity);
+                estimatedDensity[row] = unit.density != 0 ? unit.density : parentDensity;
+                fixed[row] = true;
+                int from = childOffsets[row];
+                int to = childOffsets[row + 1];
+                if (top + to - from > stack.length) {
+                    stack = Arrays.copyOf(stack, Math.max(stack.length * 2, top + to - from));
+                }
+                for (int index = to - 1; index >= from; index--) {
+                    stack[top++] = childRows[index];
+                }
+            }
+        });
 
+        // jednostki nieosiągalne z korzeni (identyfikatory tworzące cykl) - przodkowie są przeglądani
+        // najwyżej n razy, a cykl bez niezerowej gęstości daje 0
+        for (int row = 0; row < n; row++) {
+            if (!fixed[row]) {
+                double density = 0;
+                int ancestor = parents[row];
+                for (int steps = 0; ancestor != IdIndex.ABSENT && steps < n; steps++, ancestor = parents[ancestor]) {
+                    if (records.get(ancestor).density != 0) {
+                        density = records.get(ancestor).density;
+                        break;
+                    }
+                }
+                records.get(row).fixMissingValues(density);
+            }
+        }
     }
 
     /**
@@ -72,32 +294,205 @@ public class AdminUnitList {
      */
     AdminUnitList getNeighbors(AdminUnit unit, double maxdistance){
         AdminUnitList neighbors = new AdminUnitList();
-        int adminLevel = unit.adminLevel;
-        for (AdminUnit adminUnit : units) {
-            if (adminUnit.adminLevel != adminLevel || !unit.bbox.intersects(adminUnit.bbox) || adminUnit.equals(unit)){
-                continue;
-            }
-            if (adminLevel != 8){
-                neighbors.units.add(adminUnit);
+        double threshold = BoundingBox.chordThreshold(maxdistance);
+        if (!isTableBacked()) {
+            for (AdminUnit adminUnit : units) {
+                if (isNeighbor(unit, adminUnit, maxdistance, threshold)) {
+                    neighbors.units.add(adminUnit);
+                }
             }
-
-            else if (unit.bbox.distanceTo(adminUnit.bbox) <= maxdistance){
+            return neighbors;
+        }
+        for (int position : spatialIndex().candidates(unit.adminLevel, unit.bbox)) {
+            AdminUnit adminUnit = units.get(position);
+            if (isNeighbor(unit, adminUnit, maxdistance, threshold)) {
                 neighbors.units.add(adminUnit);
             }
         }
         return neighbors;
     }
 
+    /**
+     * @param threshold - BoundingBox.chordThreshold(maxdistance)
+     */
+    private static boolean isNeighbor(AdminUnit unit, AdminUnit adminUnit, double maxdistance, double threshold) {
+        if (adminUnit.adminLevel != unit.adminLevel || !unit.bbox.intersects(adminUnit.bbox) || adminUnit.equals(unit)){
+            return false;
+        }
+        return unit.adminLevel != 8 || unit.bbox.isWithin(adminUnit.bbox, maxdistance, threshold);
+    }
+
+    /**
+     * Wyznacza sąsiadów wszystkich jednostek naraz - wynik dla jednostki na pozycji i
+     * jest taki sam jak getNeighbors(units.get(i), maxdistance)
+     * (poza miejscowościami z pustym BoundingBox, które nie mają sąsiadów)
+     * @param maxdistance - promień dla miejscowości
+     * @return graf sąsiedztwa opisany pozycjami jednostek na liście
+     */
+    NeighborGraph getNeighborGraph(double maxdistance){
+        return NeighborGraph.build(units, table(), maxdistance);
+    }
+
+    /**
+     * Zwraca co najwyżej k jednostek, których środki BoundingBox leżą najbliżej punktu (lat, lon)
+     * @param lat - szerokość geograficzna w stopniach
+     * @param lon - długość geograficzna w stopniach
+     * @param k - maksymalna liczba jednostek (ujemna zgłasza IllegalArgumentException)
+     * @param levelFilter - warunek dla admin_level zwracanych jednostek
+     * @return lista posortowana od najbliższej jednostki
+     */
+    AdminUnitList nearest(double lat, double lon, int k, IntPredicate levelFilter){
+        if (!isTableBacked()) {
+            return atPositions(AdminUnitCenterIndex.nearest(units, lat, lon, k, levelFilter));
+        }
+        return atPositions(centerIndex().nearest(lat, lon, k, levelFilter));
+    }
+
+    AdminUnitList nearest(double lat, double lon, int k){
+        return nearest(lat, lon, k, level -> true);
+    }
+
+    /**
+     * Zwraca jednostki, których środki BoundingBox leżą w odległości (haversine) co najwyżej km od punktu (lat, lon)
+     * @param lat - szerokość geograficzna w stopniach
+     * @param lon - długość geograficzna w stopniach
+     * @param km - promień w km
+     * @return lista posortowana od najbliższej jednostki
+     */
+    AdminUnitList withinRadius(double lat, double lon, double km){
+        if (!isTableBacked()) {
+            return atPositions(AdminUnitCenterIndex.withinRadius(units, lat, lon, km));
+        }
+        return atPositions(centerIndex().withinRadius(lat, lon, km));
+    }
+
+    /**
+     * Zwraca jednostki, których BoundingBox zawiera punkt (x, y) - od województw do miejscowości.
+     * Każda jednostka występuje po swoim rodzicu, a jednostki z tym samym rodzicem w kolejności listy
+     * @param x - współrzędna x (długość geograficzna)
+     * @param y - współrzędna y (szerokość geograficzna)
+     * @return lista jednostek zawierających punkt
+     */
+    AdminUnitList containing(double x, double y){
+        AdminUnitList result = new AdminUnitList();
+        if (!isTableBacked()) {
+            AdminUnitContainmentIndex.containing(units, x, y, position -> result.units.add(units.get(position)));
+            return result;
+        }
+        containmentIndex().containing(x, y, position -> result.units.add(units.get(position)));
+        return result;
+    }
+
+    /**
+     * Zwraca jednostki z podanych pozycji listy (np. wierszy zwróconych przez table())
+     * @param positions - pozycje jednostek
+     * @return nową listę w kolejności positions
+     */
+    AdminUnitList atPositions(int[] positions) {
+        AdminUnitList result = new AdminUnitList(new ArrayList<>(positions.length));
+        for (int position : positions) {
+            result.units.add(units.get(position));
+        }
+        return result;
+    }
+
+    /**
+     * Zwraca indeks środków listy opartej na tabeli kolumnowej, budując go przy pierwszym użyciu.
+     * Zwykła lista jest przeglądana bez indeksu, bo jej jednostki mogą się zmienić bez wiedzy listy
+     */
+    private AdminUnitCenterIndex centerIndex() {
+        if (centerIndex == null) {
+            centerIndex = new AdminUnitCenterIndex(table);
+        }
+        return centerIndex;
+    }
+
+    /**
+     * Zwraca kolumnową reprezentację listy - wiersz i odpowiada jednostce units.get(i).
+     * Dla zwykłej listy tabela jest budowana przy każdym wywołaniu, bo jej jednostki i ich kolejność
+     * mogą się zmienić bez wiedzy listy
+     */
+    AdminUnitTable table() {
+        if (isTableBacked()) {
+            return table;
+        }
+        return AdminUnitTable.of(units);
+    }
+
+    /**
+     * Zwraca indeks atrybutów listy opartej na tabeli kolumnowej, budując go przy pierwszym użyciu
+     */
+    AdminUnitAttributeIndex attributeIndex() {
+        if (attributeIndex == null) {
+            attributeIndex = new AdminUnitAttributeIndex(table);
+        }
+        return attributeIndex;
+    }
+
+    /**
+     * Zwraca units jako listę, którą można zmieniać - lista oparta na tabeli kolumnowej jest najpierw kopiowana
+     */
+    private List<AdminUnit> mutableUnits() {
+        if (isTableBacked()) {
+            units = new ArrayList<>(units);
+        }
+        return units;
+    }
+
+    /**
+     * Sprawdza, czy units jest widokiem tabeli kolumnowej - wtedy wartości można czytać z kolumn,
+     * bez tworzenia obiektów AdminUnit. Tylko dla takiej listy wyniki indeksu atrybutów są zawsze aktualne:
+     * pola AdminUnit są publiczne, więc jednostki zwykłej listy mogą się zmienić po zbudowaniu indeksu
+     * bez wiedzy listy, a zmiany jednostek odczytanych z tabeli nie są w niej zapisywane
+     */
+    boolean isTableBacked() {
+        return table != null && units == table.asList();
+    }
+
+    /**
+     * Zwraca indeks zawierania listy opartej na tabeli kolumnowej, budując go przy pierwszym użyciu.
+     * Zwykła lista jest przeglądana bez indeksu, bo jej jednostki mogą się zmienić bez wiedzy listy
+     */
+    private AdminUnitContainmentIndex containmentIndex() {
+        if (containmentIndex == null) {
+            containmentIndex = new AdminUnitContainmentIndex(table);
+        }
+        return containmentIndex;
+    }
+
+    /**
+     * Zwraca indeks przestrzenny listy opartej na tabeli kolumnowej, budując go przy pierwszym użyciu.
+     * Jednostki zwykłej listy mogą się zmienić bez wiedzy listy, więc jej sąsiedzi są wyznaczani bez indeksu
+     */
+    private AdminUnitSpatialIndex spatialIndex() {
+        if (spatialIndex == null) {
+            spatialIndex = new AdminUnitSpatialIndex(table);
+        }
+        return spatialIndex;
+    }
+
+    /**
+     * Unieważnia indeksy po zmianie zawartości lub kolejności listy
+     */
+    private void invalidateIndexes() {
+        spatialIndex = null;
+        centerIndex = null;
+        containmentIndex = null;
+        attributeIndex = null;
+        table = null;
+    }
+
     AdminUnitList getNeighborsHierarchical(AdminUnit unit, double maxdistance){
         AdminUnitList neighbors = new AdminUnitList();
         if (unit.parent == null) {
             return getNeighbors(unit, maxdistance);
         }
 
+        double threshold = BoundingBox.chordThreshold(maxdistance);
         for (AdminUnit sibling : unit.parent.children) {
-            if (sibling != unit && sibling.adminLevel == unit.adminLevel) {
+            if (!sibling.equals(unit) && sibling.adminLevel == unit.adminLevel) {
                 if (unit.adminLevel == 8) {
-                    if (unit.bbox.distanceTo(sibling.bbox) <= maxdistance) {
+                    if (unit.bbox.isWithin(sibling.bbox, maxdistance, threshold)) {
                         neighbors.units.add(sibling);
                     }
                 } else {
@@ -110,7 +505,7 @@ public class AdminUnitList {
 
         if (unit.parent.parent != null) {
             for (AdminUnit uncle : unit.parent.parent.children) {
-                if (uncle != unit.parent && uncle.children != null) {
+                if (!uncle.equals(unit.parent) && uncle.children != null) {
                     for (AdminUnit cousin : uncle.children) {
                         if (cousin.adminLevel == unit.adminLevel && unit.bbox.intersects(cousin.bbox)) {
                             neighbors.units.add(cousin);
@@ -127,17 +522,16 @@ public class AdminUnitList {
      * @return this
      */
     AdminUnitList sortInPlaceByName(){
-        class NameComparator implements Comparator<AdminUnit> {
-            @Override
-            public int compare(AdminUnit o1, AdminUnit o2) {
-                return o1.name.compareTo(o2.name);
-            }
-        }
-
-        Comparator<AdminUnit> comparator = new NameComparator();
+        return reorder(PrimitiveSort.order(names()));
+    }
 
-        units.sort(comparator);
-        return this;
+    /**
+     * Sortuje daną listę jednostek (in place = w miejscu) według nazw w kolejności collatora
+     * @param collator - porządek nazw, np. Collator.getInstance(new Locale("pl"))
+     * @return this
+     */
+    AdminUnitList sortInPlaceByName(Collator collator){
+        return reorder(PrimitiveSort.order(names(), collator));
     }
 
     /**
@@ -145,13 +539,11 @@ public class AdminUnitList {
      * @return this
      */
     AdminUnitList sortInPlaceByArea(){
-        units.sort(new Comparator<AdminUnit>() {
-            @Override
-            public int compare(AdminUnit o1, AdminUnit o2) {
-                return Double.compare(o1.area, o2.area);
-            }
-        });
-        return this;
+        long[] keys = new long[units.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = PrimitiveSort.sortableKey(isTableBacked() ? table.area(i) : units.get(i).area);
+        }
+        return reorder(PrimitiveSort.order(keys));
     }
 
     /**
@@ -159,17 +551,97 @@ public class AdminUnitList {
      * @return this
      */
     AdminUnitList sortInPlaceByPopulation(){
-        units.sort((o1, o2) -> Integer.compare(o1.population, o2.population));
+        long[] keys = new long[units.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = isTableBacked() ? table.population(i) : units.get(i).population;
+        }
+        return reorder(PrimitiveSort.order(keys));
+    }
+
+    /**
+     * Zwraca nazwy jednostek w kolejności listy
+     */
+    private String[] names() {
+        String[] names = new String[units.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = isTableBacked() ? table.name(i) : units.get(i).name;
+        }
+        return names;
+    }
+
+    /**
+     * Ustawia jednostki w kolejności wyznaczonej przez PrimitiveSort. Lista oparta na tabeli kolumnowej
+     * dostaje tabelę z przestawionymi wierszami, więc jednostki nie są kopiowane
+     * @param order - order[i] to obecna pozycja jednostki, która ma trafić na pozycję i
+     * @return this
+     */
+    private AdminUnitList reorder(int[] order) {
+        if (isTableBacked()) {
+            AdminUnitTable reordered = table.select(order);
+            invalidateIndexes();
+            table = reordered;
+            units = reordered.asList();
+            return this;
+        }
+        List<AdminUnit> list = mutableUnits();
+        AdminUnit[] current = list.toArray(new AdminUnit[0]);
+        ListIterator<AdminUnit> iterator = list.listIterator();
+        for (int position : order) {
+            iterator.next();
+            iterator.set(current[position]);
+        }
+        invalidateIndexes();
         return this;
     }
 
     AdminUnitList sortInPlace(Comparator<AdminUnit> cmp){
-        units.sort(cmp);
+        if (isTableBacked()) {
+            return reorder(PrimitiveSort.order(units.toArray(new AdminUnit[0]), cmp));
+        }
+        sortList(units, cmp);
+        invalidateIndexes();
         return this;
     }
 
+    /**
+     * Sortuje list stabilnie - tak jak List.sort(). Listy co najmniej tak duże jak próg równoległości
+     * są sortowane przez Arrays.parallelSort(), które również jest stabilne, więc wynik jest taki sam
+     * @param list - lista do posortowania
+     * @param cmp - komparator
+     */
+    static void sortList(List<AdminUnit> list, Comparator<? super AdminUnit> cmp) {
+        if (list.size() < parallelThreshold) {
+            list.sort(cmp);
+            return;
+        }
+        AdminUnit[] sorted = list.toArray(new AdminUnit[0]);
+        Arrays.parallelSort(sorted, cmp);
+        ListIterator<AdminUnit> iterator = list.listIterator();
+        for (AdminUnit unit : sorted) {
+            iterator.next();
+            iterator.set(unit);
+        }
+    }
+
+    /**
+     * Ustawia minimalną liczbę jednostek, od której równolegle są wykonywane: sortowanie komparatorem
+     * zwykłych list (sortInPlace(Comparator), sort(), sortowanie w AdminUnitQuery), selectByName(pattern, regex)
+     * oraz uzupełnianie brakujących wartości w read(). Sortowania sortInPlaceByName/Area/Population() i listy
+     * opartej na tabeli są zawsze sekwencyjne, a filter() jest równoległy tylko na żądanie (filter(pred, true))
+     * @param threshold - próg (Integer.MAX_VALUE wyłącza równoległość)
+     */
+    static void setParallelThreshold(int threshold) {
+        parallelThreshold = threshold;
+    }
+
+    static int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
     AdminUnitList sort(Comparator<AdminUnit> cmp) {
-        AdminUnitList sortedUnits = new AdminUnitList(new ArrayList<>(units));
+        AdminUnitList sortedUnits = isTableBacked()
+                ? new AdminUnitList(table)
+                : new AdminUnitList(new ArrayList<>(units));
         sortedUnits.sortInPlace(cmp);
         return sortedUnits;
     }
@@ -178,12 +650,33 @@ public class AdminUnitList {
      *
      * @param pred referencja do interfejsu Predicate
      * @return nową listę, na której pozostawiono tylko te jednostki,
-     * dla których metoda test() zwraca true
+     * dla których metoda test() zwraca true.
+     * Dla AdminUnitPredicate i listy opartej na tabeli kolumnowej przeglądani są tylko kandydaci
+     * wskazani przez indeksy.
      */
     AdminUnitList filter(Predicate<AdminUnit> pred){
+        return filter(pred, false);
+    }
+
+    /**
+     * Działa jak filter(pred), ale pozwala sprawdzać kandydatów równolegle
+     * @param pred - predykat, przy parallel=true wywoływany jednocześnie z wielu wątków
+     * @param parallel - czy przeglądać kandydatów równolegle (dla dużych list)
+     * @return nową listę w kolejności listy
+     */
+    AdminUnitList filter(Predicate<AdminUnit> pred, boolean parallel){
+        AdminUnitPredicate.Plan plan = AdminUnitPredicate.plan(pred, this);
+        Predicate<AdminUnit> residual = plan.residual();
+        List<AdminUnit> candidates = plan.units(this);
+        if (parallel) {
+            List<AdminUnit> filtered = candidates.parallelStream()
+                    .filter(residual)
+                    .collect(Collectors.toCollection(ArrayList::new));
+            return new AdminUnitList(filtered);
+        }
         List<AdminUnit> filtered = new ArrayList<>();
-        for (AdminUnit unit : units) {
-            if (pred.test(unit)) {
+        for (AdminUnit unit : candidates) {
+            if (residual.test(unit)) {
                 filtered.add(unit);
             }
         }
@@ -198,13 +691,15 @@ public class AdminUnitList {
      * @return nową listę
      */
     AdminUnitList filter(Predicate<AdminUnit> pred, int limit){
+        AdminUnitPredicate.Plan plan = AdminUnitPredicate.plan(pred, this);
+        Predicate<AdminUnit> residual = plan.residual();
         List<AdminUnit> filtered = new ArrayList<>();
         int counter = 0;
-        for (AdminUnit unit : units) {
+        for (AdminUnit unit : plan.units(this)) {
             if (counter == limit) {
                 break;
             }
-            if (pred.test(unit)) {
+            if (residual.test(unit)) {
                 filtered.add(unit);
                 counter++;
             }
@@ -221,14 +716,16 @@ public class AdminUnitList {
      * @return nową listę
      */
     AdminUnitList filter(Predicate<AdminUnit> pred, int offset, int limit){
+        AdminUnitPredicate.Plan plan = AdminUnitPredicate.plan(pred, this);
+        Predicate<AdminUnit> residual = plan.residual();
         AdminUnitList result = new AdminUnitList();
         var filtered = result.units;
         int counter = 0;
-        for (AdminUnit unit : units) {
+        for (AdminUnit unit : plan.units(this)) {
             if (counter == limit) {
                 break;
             }
-            if (pred.test(unit)) {
+            if (residual.test(unit)) {
                 counter++;
                 if (counter > offset) {
                     filtered.add(unit);
@@ -261,89 +758,204 @@ public class AdminUnitList {
     }
 
     /**
-     * Zwraca nową listę zawierającą te obiekty AdminUnit, których nazwa pasuje do wzorca
-     * @param pattern - wzorzec dla nazwy
-     * @param regex - jeśli regex=true, użyj finkcji String matches(); jeśli false użyj funkcji contains()
-     * @return podzbiór elementów, których nazwy spełniają kryterium wyboru
+     * Zwraca jednostki o nazwie równej name (indeks haszujący dla listy opartej na tabeli,
+     * dla zwykłej listy - przegląd aktualnych wartości)
+     * @param name - nazwa
+     * @return nową listę w kolejności listy
      */
-    AdminUnitList selectByName(String pattern, boolean regex){
-        AdminUnitList ret = new AdminUnitList();
-        for (AdminUnit unit : units){
-            if (regex){
-                if (unit.name.matches(pattern)){
-                    ret.units.add(unit);
-                }
-            }
-            else{
-                if (unit.name.contains(pattern)){
-                    ret.units.add(unit);
-                }
+    AdminUnitList selectByExactName(String name){
+        if (!isTableBacked()) {
+            return selectWhere(unit -> name.equals(unit.name));
+        }
+        return atPositions(attributeIndex().withName(name));
+    }
 
-            }
+    /**
+     * Zwraca jednostki, których nazwa zaczyna się od prefix - tak jak filter(a -> a.name.startsWith(prefix))
+     * @param prefix - prefiks nazwy
+     * @return nową listę w kolejności listy
+     */
+    AdminUnitList selectByNamePrefix(String prefix){
+        if (!isTableBacked()) {
+            return selectWhere(unit -> unit.name != null && unit.name.startsWith(prefix));
         }
-        return ret;
+        return atPositions(attributeIndex().withNamePrefix(prefix));
     }
 
+    /**
+     * Zwraca jednostki z danym admin_level
+     * @param adminLevel - poziom
+     * @return nową listę w kolejności listy
+     */
+    AdminUnitList selectByLevel(int adminLevel){
+        if (!isTableBacked()) {
+            return selectWhere(unit -> unit.adminLevel == adminLevel);
+        }
+        return atPositions(attributeIndex().withLevel(adminLevel));
+    }
 
-    private BoundingBox getBoundingBoxFromReader(CSVReader reader){
-        BoundingBox boundingBox = new BoundingBox();
-        try{
-            boundingBox.addPoint(reader.getDouble("x1"), reader.getDouble("y1"));
-            boundingBox.addPoint(reader.getDouble("x2"), reader.getDouble("y2"));
-            boundingBox.addPoint(reader.getDouble("x3"), reader.getDouble("y3"));
-            boundingBox.addPoint(reader.getDouble("x4"), reader.getDouble("y4"));
-        }catch (NumberFormatException ignored){}
+    /**
+     * Zwraca jednostki z population w przedziale [min, max]
+     * @return nową listę w kolejności listy
+     */
+    AdminUnitList selectByPopulation(int min, int max){
+        if (!isTableBacked()) {
+            return selectWhere(unit -> unit.population >= min && unit.population <= max);
+        }
+        return atPositions(attributeIndex().withPopulationBetween(min, max));
+    }
 
-        return boundingBox;
+    /**
+     * Zwraca jednostki z area w przedziale [min, max]
+     * @return nową listę w kolejności listy
+     */
+    AdminUnitList selectByArea(double min, double max){
+        if (!isTableBacked()) {
+            return selectWhere(unit -> unit.area >= min && unit.area <= max);
+        }
+        return atPositions(attributeIndex().withAreaBetween(min, max));
+    }
+
+    /**
+     * Zwraca jednostki spełniające pred, sprawdzając kolejno wszystkie jednostki listy
+     */
+    private AdminUnitList selectWhere(Predicate<AdminUnit> pred){
+        AdminUnitList result = new AdminUnitList();
+        for (AdminUnit unit : units){
+            if (pred.test(unit)){
+                result.units.add(unit);
+            }
+        }
+        return result;
     }
 
-    private AdminUnit getAdminUnitFromReader(CSVReader reader){
-        String name;
-        int adminLevel;
-        int population;
-        double area;
-        double density;
-        BoundingBox boundingBox;
+    /**
+     * Zwraca nową listę zawierającą te obiekty AdminUnit, których nazwa pasuje do wzorca
+     * @param pattern - wzorzec dla nazwy
+     * @param regex - jeśli regex=true, użyj finkcji String matches(); jeśli false użyj funkcji contains()
+     * @return podzbiór elementów, których nazwy spełniają kryterium wyboru
+     */
+    AdminUnitList selectByName(String pattern, boolean regex){
+        return selectByName(pattern, regex, units.size() >= parallelThreshold);
+    }
 
-        name = reader.get("name");
-        try {
-            adminLevel = reader.getInt("admin_level");
+    /**
+     * Działa jak selectByName(pattern, regex), ale wzorce bez metaznaków oraz postaci "abc.*", ".*abc" i ".*abc.*"
+     * są sprawdzane przez equals()/startsWith()/endsWith()/contains() (dokładna nazwa i prefiks przez selectBy*),
+     * a pozostałe wyrażenia są kompilowane raz i zapamiętywane w pamięci podręcznej
+     * @param pattern - wzorzec dla nazwy
+     * @param regex - jeśli regex=true, nazwa musi pasować do całego wyrażenia; jeśli false - zawierać pattern
+     * @param parallel - czy przeglądać listę równolegle (dla dużych list)
+     * @return podzbiór elementów w kolejności listy
+     */
+    AdminUnitList selectByName(String pattern, boolean regex, boolean parallel){
+        if (!regex){
+            return selectByName(name -> name.contains(pattern), parallel);
         }
-        catch (NumberFormatException e){
-            adminLevel = 0;
+        if (isLiteral(pattern, 0, pattern.length())){
+            return selectByExactName(pattern);
         }
-
-        try {
-            population = reader.getInt("population");
+        boolean anyPrefix = pattern.startsWith(ANY_TEXT);
+        int literalStart = anyPrefix ? ANY_TEXT.length() : 0;
+        int literalEnd = pattern.length();
+        if (pattern.endsWith(ANY_TEXT) && literalEnd - ANY_TEXT.length() >= literalStart){
+            literalEnd -= ANY_TEXT.length();
         }
-        catch (NumberFormatException e){
-            population = 0;
+        boolean anySuffix = literalEnd < pattern.length();
+        if (isLiteral(pattern, literalStart, literalEnd)){
+            String literal = pattern.substring(literalStart, literalEnd);
+            if (!anyPrefix){
+                return selectByNamePrefix(literal).filter(unit -> !hasLineTerminator(unit.name));
+            }
+            if (anySuffix){
+                return selectByName(name -> name.contains(literal) && !hasLineTerminator(name), parallel);
+            }
+            return selectByName(name -> name.endsWith(literal) && !hasLineTerminator(name), parallel);
         }
+        Pattern compiled = pattern(pattern);
+        return selectByName(name -> compiled.matcher(name).matches(), parallel);
+    }
 
-        try {
-            area = reader.getDouble("area");
+    private AdminUnitList selectByName(Predicate<String> nameFilter, boolean parallel){
+        if (parallel){
+            List<AdminUnit> selected = units.parallelStream()
+                    .filter(unit -> nameFilter.test(unit.name))
+                    .collect(Collectors.toCollection(ArrayList::new));
+            return new AdminUnitList(selected);
         }
-        catch (NumberFormatException e){
-            area = 0;
+        if (isTableBacked()) {
+            return atPositions(table.rowsWhere(row -> nameFilter.test(table.name(row))));
         }
+        AdminUnitList ret = new AdminUnitList();
+        for (AdminUnit unit : units){
+            if (nameFilter.test(unit.name)){
+                ret.units.add(unit);
+            }
+        }
+        return ret;
+    }
 
-        try {
-            density = reader.getDouble("density");
+    /**
+     * Zwraca skompilowane wyrażenie z pamięci podręcznej LRU
+     */
+    static Pattern pattern(String regex){
+        return PATTERNS.get(regex, Pattern::compile);
+    }
+
+    /**
+     * Sprawdza, czy fragment [start, end) wyrażenia nie zawiera metaznaków, czyli pasuje wyłącznie do samego siebie
+     * i nie zawiera znaków końca linii
+     */
+    private static boolean isLiteral(String regex, int start, int end){
+        for (int i = start; i < end; i++){
+            char c = regex.charAt(i);
+            if (CSVReader.REGEX_METACHARACTERS.indexOf(c) >= 0 || isLineTerminator(c)){
+                return false;
+            }
         }
-        catch (NumberFormatException e){
-            density = 0;
+        return true;
+    }
+
+    /**
+     * Sprawdza, czy nazwa zawiera znak, do którego nie pasuje "." w wyrażeniu regularnym
+     */
+    private static boolean hasLineTerminator(String name){
+        for (int i = 0; i < name.length(); i++){
+            if (isLineTerminator(name.charAt(i))){
+                return true;
+            }
         }
+        return false;
+    }
 
-        boundingBox = getBoundingBoxFromReader(reader);
+    private static boolean isLineTerminator(char c){
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
 
-        return new AdminUnit(name, area, adminLevel, population, density, boundingBox);
+    private BoundingBox getBoundingBoxFromReader(AdminUnitColumns columns){
+        BoundingBox boundingBox = new BoundingBox();
+        for (int i = 0; i < columns.x.length; i++) {
+            double x = columns.x[i].getDoubleOrNaN();
+            double y = columns.y[i].getDoubleOrNaN();
+            if (Double.isNaN(x) || Double.isNaN(y)) {
+                break;
+            }
+            boundingBox.addPoint(x, y);
+        }
 
+        return boundingBox;
     }
 
-    private void fixMissingValues(){
-        for(AdminUnit unit : units){
-            unit.fixMissingValues();
-        }
+    private AdminUnit getAdminUnitFromReader(AdminUnitColumns columns){
+        String name = columns.name.get();
+        int adminLevel = columns.adminLevel.getIntOrDefault(0);
+        int population = columns.population.getIntOrDefault(0);
+        double area = columns.area.getDoubleOrDefault(0);
+        double density = columns.density.getDoubleOrDefault(0);
+        BoundingBox boundingBox = getBoundingBoxFromReader(columns);
+
+        return new AdminUnit(name, area, adminLevel, population, density, boundingBox);
+
     }
 
 }
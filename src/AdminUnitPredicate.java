@@ -0,0 +1,452 @@
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
+
+/**
+ * Predykat dla jednostek o znanej budowie, z którego planista w AdminUnitList.filter() może wybrać ścieżkę dostępu.
+ * Predykaty levelEq, nameEquals, nameStartsWith, populationBetween, areaBetween i bboxIntersects
+ * mają odpowiedniki w indeksach listy. Dla koniunkcji wybierany jest indeks zwracający najmniej kandydatów,
+ * a kandydaci są sprawdzani całym predykatem - warunki w kolejności dodania, tak jak Predicate.and().
+ * Warunek z indeksu jest sprawdzany ponownie, więc wynik zależy od aktualnych wartości jednostek.
+ * Alternatywa korzysta z indeksów tylko, gdy mają je wszystkie jej składniki.
+ * Indeksy są używane tylko dla list opartych na tabeli kolumnowej (AdminUnitList.isTableBacked()) -
+ * jednostki zwykłej listy mogą się zmienić po zbudowaniu indeksu, więc są przeglądane wszystkie.
+ * Zwykłe predykaty (lambdy) mogą być częścią drzewa, ale zawsze wymagają sprawdzenia jednostki.
+ */
+abstract class AdminUnitPredicate implements Predicate<AdminUnit> {
+    private static final AdminUnitPredicate ALL = new AdminUnitPredicate() {
+        @Override
+        public boolean test(AdminUnit unit) {
+            return true;
+        }
+
+        @Override
+        Plan plan(AdminUnitList list) {
+            return new Plan(null, this);
+        }
+    };
+
+    /**
+     * Sposób wykonania filtrowania: pozycje kandydatów (rosnąco, null - cała lista)
+     * i warunek, który kandydaci muszą spełnić
+     */
+    record Plan(int[] positions, Predicate<AdminUnit> residual) {
+        /**
+         * @return kandydaci w kolejności listy
+         */
+        List<AdminUnit> units(AdminUnitList list) {
+            if (positions == null) {
+                return list.units;
+            }
+            return new Candidates(list.units, positions);
+        }
+    }
+
+    private static class Candidates extends AbstractList<AdminUnit> implements RandomAccess {
+        private final List<AdminUnit> units;
+        private final int[] positions;
+
+        Candidates(List<AdminUnit> units, int[] positions) {
+            this.units = units;
+            this.positions = positions;
+        }
+
+        @Override
+        public AdminUnit get(int index) {
+            return units.get(positions[index]);
+        }
+
+        @Override
+        public int size() {
+            return positions.length;
+        }
+    }
+
+    /**
+     * Wybiera sposób wykonania filtrowania listy przez pred
+     */
+    static Plan plan(Predicate<AdminUnit> pred, AdminUnitList list) {
+        if (pred instanceof AdminUnitPredicate predicate) {
+            return predicate.plan(list);
+        }
+        return new Plan(null, pred);
+    }
+
+    abstract Plan plan(AdminUnitList list);
+
+    /**
+     * Czy predykat ma odpowiednik w indeksach listy
+     */
+    boolean indexed() {
+        return false;
+    }
+
+    /**
+     * Szacowana liczba kandydatów zwracanych przez indeks
+     */
+    int estimate(AdminUnitList list) {
+        return list.units.size();
+    }
+
+    static AdminUnitPredicate all() {
+        return ALL;
+    }
+
+    /**
+     * Zamienia zwykły predykat na AdminUnitPredicate (bez możliwości użycia indeksu)
+     */
+    static AdminUnitPredicate of(Predicate<? super AdminUnit> pred) {
+        if (pred instanceof AdminUnitPredicate predicate) {
+            return predicate;
+        }
+        return new Opaque(pred);
+    }
+
+    static AdminUnitPredicate levelEq(int adminLevel) {
+        return new Indexed() {
+            @Override
+            public boolean test(AdminUnit unit) {
+                return unit.adminLevel == adminLevel;
+            }
+
+            @Override
+            int[] positions(AdminUnitList list) {
+                return list.attributeIndex().withLevel(adminLevel);
+            }
+
+            @Override
+            int estimate(AdminUnitList list) {
+                return list.attributeIndex().countWithLevel(adminLevel);
+            }
+        };
+    }
+
+    static AdminUnitPredicate nameEquals(String name) {
+        return new Indexed() {
+            @Override
+            public boolean test(AdminUnit unit) {
+                return name.equals(unit.name);
+            }
+
+            @Override
+            int[] positions(AdminUnitList list) {
+                return list.attributeIndex().withName(name);
+            }
+
+            @Override
+            int estimate(AdminUnitList list) {
+                return list.attributeIndex().countWithName(name);
+            }
+        };
+    }
+
+    static AdminUnitPredicate nameStartsWith(String prefix) {
+        return new Indexed() {
+            @Override
+            public boolean test(AdminUnit unit) {
+                return unit.name != null && unit.name.startsWith(prefix);
+            }
+
+            @Override
+            int[] positions(AdminUnitList list) {
+                return list.attributeIndex().withNamePrefix(prefix);
+            }
+
+            @Override
+            int estimate(AdminUnitList list) {
+                return list.attributeIndex().countWithNamePrefix(prefix);
+            }
+        };
+    }
+
+    /**
+     * Jednostki z population w przedziale [min, max]
+     */
+    static AdminUnitPredicate populationBetween(int min, int max) {
+        return new Indexed() {
+            @Override
+            public boolean test(AdminUnit unit) {
+                return unit.population >= min && unit.population <= max;
+            }
+
+            @Override
+            int[] positions(AdminUnitList list) {
+                return list.attributeIndex().withPopulationBetween(min, max);
+            }
+
+            @Override
+            int estimate(AdminUnitList list) {
+                return list.attributeIndex().countWithPopulationBetween(min, max);
+            }
+        };
+    }
+
+    /**
+     * Jednostki z area w przedziale [min, max]
+     */
+    static AdminUnitPredicate areaBetween(double min, double max) {
+        return new Indexed() {
+            @Override
+            public boolean test(AdminUnit unit) {
+                return unit.area >= min && unit.area <= max;
+            }
+
+            @Override
+            int[] positions(AdminUnitList list) {
+                return list.attributeIndex().withAreaBetween(min, max);
+            }
+
+            @Override
+            int estimate(AdminUnitList list) {
+                return list.attributeIndex().countWithAreaBetween(min, max);
+            }
+        };
+    }
+
+    /**
+     * Jednostki, których BoundingBox przecina bbox (BoundingBox.intersects()).
+     * Kandydaci są wyznaczani przeglądem kolumn AdminUnitTable, więc liczba kandydatów nie jest znana z góry
+     */
+    static AdminUnitPredicate bboxIntersects(BoundingBox bbox) {
+        return new Indexed() {
+            @Override
+            public boolean test(AdminUnit unit) {
+                return bbox.intersects(unit.bbox);
+            }
+
+            @Override
+            int[] positions(AdminUnitList list) {
+                return list.table().rowsIntersecting(bbox);
+            }
+        };
+    }
+
+    @Override
+    public AdminUnitPredicate and(Predicate<? super AdminUnit> other) {
+        List<AdminUnitPredicate> children = new ArrayList<>();
+        addConjuncts(this, children);
+        addConjuncts(of(other), children);
+        if (children.isEmpty()) {
+            return ALL;
+        }
+        return children.size() == 1 ? children.get(0) : new And(children);
+    }
+
+    @Override
+    public AdminUnitPredicate or(Predicate<? super AdminUnit> other) {
+        AdminUnitPredicate that = of(other);
+        if (this == ALL || that == ALL) {
+            return ALL;
+        }
+        List<AdminUnitPredicate> children = new ArrayList<>();
+        addDisjuncts(this, children);
+        addDisjuncts(that, children);
+        return new Or(children);
+    }
+
+    @Override
+    public AdminUnitPredicate negate() {
+        return new Opaque(unit -> !test(unit));
+    }
+
+    private static void addConjuncts(AdminUnitPredicate predicate, List<AdminUnitPredicate> children) {
+        if (predicate instanceof And and) {
+            children.addAll(and.children);
+        }
+        else if (predicate != ALL) {
+            children.add(predicate);
+        }
+    }
+
+    private static void addDisjuncts(AdminUnitPredicate predicate, List<AdminUnitPredicate> children) {
+        if (predicate instanceof Or or) {
+            children.addAll(or.children);
+        }
+        else {
+            children.add(predicate);
+        }
+    }
+
+    /**
+     * Predykat z odpowiednikiem w indeksie - positions() zwraca jednostki, które spełniały test()
+     * w chwili budowy indeksu
+     */
+    private abstract static class Indexed extends AdminUnitPredicate {
+        abstract int[] positions(AdminUnitList list);
+
+        @Override
+        boolean indexed() {
+            return true;
+        }
+
+        @Override
+        Plan plan(AdminUnitList list) {
+            if (!list.isTableBacked()) {
+                return new Plan(null, this);
+            }
+            return new Plan(positions(list), this);
+        }
+    }
+
+    private static class Opaque extends AdminUnitPredicate {
+        private final Predicate<? super AdminUnit> pred;
+
+        Opaque(Predicate<? super AdminUnit> pred) {
+            this.pred = pred;
+        }
+
+        @Override
+        public boolean test(AdminUnit unit) {
+            return pred.test(unit);
+        }
+
+        @Override
+        Plan plan(AdminUnitList list) {
+            return new Plan(null, this);
+        }
+    }
+
+    private static class And extends AdminUnitPredicate {
+        /**
+         * Warunki w kolejności dodania - w tej kolejności są sprawdzane, więc warunek może zakładać,
+         * że poprzednie są spełnione (np. unit.parent != null)
+         */
+        private final List<AdminUnitPredicate> children;
+        /**
+         * Warunki z indeksem - tylko spośród nich planista wybiera indeks
+         */
+        private final AdminUnitPredicate[] indexedChildren;
+
+        And(List<AdminUnitPredicate> children) {
+            this.children = children;
+            List<AdminUnitPredicate> indexed = new ArrayList<>(children.size());
+            for (AdminUnitPredicate child : children) {
+                if (child.indexed()) {
+                    indexed.add(child);
+                }
+            }
+            indexedChildren = indexed.toArray(new AdminUnitPredicate[0]);
+        }
+
+        @Override
+        public boolean test(AdminUnit unit) {
+            for (AdminUnitPredicate child : children) {
+                if (!child.test(unit)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        boolean indexed() {
+            return indexedChildren.length > 0;
+        }
+
+        @Override
+        int estimate(AdminUnitList list) {
+            int estimate = list.units.size();
+            for (AdminUnitPredicate child : indexedChildren) {
+                estimate = Math.min(estimate, child.estimate(list));
+            }
+            return estimate;
+        }
+
+        @Override
+        Plan plan(AdminUnitList list) {
+            if (!list.isTableBacked()) {
+                return new Plan(null, this);
+            }
+            AdminUnitPredicate driver = null;
+            int driverEstimate = Integer.MAX_VALUE;
+            for (AdminUnitPredicate child : indexedChildren) {
+                int estimate = child.estimate(list);
+                if (estimate < driverEstimate) {
+                    driver = child;
+                    driverEstimate = estimate;
+                }
+            }
+            if (driver == null) {
+                return new Plan(null, this);
+            }
+            return new Plan(driver.plan(list).positions(), this);
+        }
+    }
+
+    private static class Or extends AdminUnitPredicate {
+        private final List<AdminUnitPredicate> children;
+
+        Or(List<AdminUnitPredicate> children) {
+            this.children = children;
+        }
+
+        @Override
+        public boolean test(AdminUnit unit) {
+            for (AdminUnitPredicate child : children) {
+                if (child.test(unit)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        boolean indexed() {
+            for (AdminUnitPredicate child : children) {
+                if (!child.indexed()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        int estimate(AdminUnitList list) {
+            long estimate = 0;
+            for (AdminUnitPredicate child : children) {
+                estimate += child.estimate(list);
+            }
+            return (int) Math.min(estimate, list.units.size());
+        }
+
+        @Override
+        Plan plan(AdminUnitList list) {
+            if (!indexed() || !list.isTableBacked()) {
+                return new Plan(null, this);
+            }
+            int[] positions = new int[0];
+            for (AdminUnitPredicate child : children) {
+                positions = union(positions, child.plan(list).positions());
+            }
+            return new Plan(positions, this);
+        }
+
+        /**
+         * Scala dwie rosnące tablice pozycji bez powtórzeń
+         */
+        private static int[] union(int[] a, int[] b) {
+            int[] result = new int[a.length + b.length];
+            int i = 0;
+            int j = 0;
+            int count = 0;
+            while (i < a.length || j < b.length) {
+                int next;
+                if (j == b.length || i < a.length && a[i] < b[j]) {
+                    next = a[i++];
+                }
+                else if (i == a.length || b[j] < a[i]) {
+                    next = b[j++];
+                }
+                else {
+                    next = a[i++];
+                    j++;
+                }
+                result[count++] = next;
+            }
+            return Arrays.copyOf(result, count);
+        }
+    }
+}
@@ -1,9 +1,11 @@
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
 import java.util.function.Predicate;
 
 public class AdminUnitQuery {
     AdminUnitList src;
-    Predicate<AdminUnit> p = a->true;
+    Predicate<AdminUnit> p = AdminUnitPredicate.all();
     Comparator<AdminUnit> cmp;
     int limit = Integer.MAX_VALUE;
     int offset = 0;
@@ -29,12 +31,13 @@ public class AdminUnitQuery {
     }
 
     /**
-     * Wykonuje operację p = p and pred
+     * Wykonuje operację p = p and pred.
+     * Warunki AdminUnitPredicate (np. AdminUnitPredicate.levelEq()) pozwalają wykonać zapytanie z użyciem indeksów
      * @param pred
      * @return this
      */
     AdminUnitQuery and(Predicate<AdminUnit> pred){
-        this.p = this.p.and(pred);
+        this.p = AdminUnitPredicate.of(this.p).and(pred);
         return this;
     }
     /**
@@ -43,7 +46,7 @@ public class AdminUnitQuery {
      * @return this
      */
     AdminUnitQuery or(Predicate<AdminUnit> pred){
-        this.p = this.p.or(pred);
+        this.p = AdminUnitPredicate.of(this.p).or(pred);
         return this;
     }
 
@@ -58,7 +61,7 @@ public class AdminUnitQuery {
     }
 
     /**
-     * Ustawia limit
+     * Ustawia limit - maksymalną liczbę zwracanych jednostek
      * @param limit
      * @return this
      */
@@ -67,7 +70,7 @@ public class AdminUnitQuery {
         return this;
     }
     /**
-     * Ustawia offset
+     * Ustawia offset - liczbę pomijanych jednostek (po posortowaniu)
      * @param offset
      * @return this
      */
@@ -77,13 +80,154 @@ public class AdminUnitQuery {
     }
 
     /**
-     * Wykonuje zapytanie i zwraca wynikową listę
-     * @return przefiltrowana i opcjonalnie posortowana lista (uwzględniamy także offset/limit)
+     * Wykonuje zapytanie i zwraca wynikową listę.
+     * Filtrowanie, sortowanie i stronicowanie są wykonywane w jednym przebiegu po kandydatach wskazanych przez plan
+     * predykatu. Gdy offset + limit jest mniejsze od rozmiaru listy, zamiast sortować wszystkie jednostki
+     * zapamiętywane jest tylko offset + limit najmniejszych (kopiec ograniczony), co kosztuje O(n log k).
+     * Jednostki równe według cmp zachowują kolejność listy - tak jak przy List.sort()
+     * @return przefiltrowana i opcjonalnie posortowana lista - offset pierwszych jednostek jest pomijany,
+     * a zwracanych jest co najwyżej limit kolejnych
      */
     AdminUnitList execute(){
-        if (cmp != null){
-            return src.filter(p, offset, limit).sort(cmp);
+        AdminUnitPredicate.Plan plan = AdminUnitPredicate.plan(p, src);
+        Predicate<AdminUnit> residual = plan.residual();
+        int offset = Math.max(this.offset, 0);
+        List<AdminUnit> result = new ArrayList<>();
+        if (limit <= 0){
+            return new AdminUnitList(result);
+        }
+
+        if (cmp == null){
+            int skipped = 0;
+            for (AdminUnit unit : plan.units(src)){
+                if (residual.test(unit)){
+                    if (skipped < offset){
+                        skipped++;
+                    }
+                    else {
+                        result.add(unit);
+                        if (result.size() == limit){
+                            break;
+                        }
+                    }
+                }
+            }
+            return new AdminUnitList(result);
+        }
+
+        long k = (long) offset + limit;
+        if (k < src.units.size()){
+            TopK top = new TopK((int) k, cmp);
+            for (AdminUnit unit : plan.units(src)){
+                if (residual.test(unit)){
+                    top.offer(unit);
+                }
+            }
+            AdminUnit[] sorted = top.drainSorted();
+            for (int i = offset; i < sorted.length; i++){
+                result.add(sorted[i]);
+            }
+            return new AdminUnitList(result);
+        }
+
+        for (AdminUnit unit : plan.units(src)){
+            if (residual.test(unit)){
+                result.add(unit);
+            }
+        }
+        AdminUnitList.sortList(result, cmp);
+        int from = Math.min(offset, result.size());
+        int to = (int) Math.min(k, result.size());
+        return new AdminUnitList(new ArrayList<>(result.subList(from, to)));
+    }
+
+    /**
+     * Kopiec ograniczony do k najmniejszych jednostek według cmp. Korzeniem jest największa zapamiętana jednostka,
+     * a przy równości cmp większa jest jednostka dodana później
+     */
+    private static class TopK {
+        private final Comparator<AdminUnit> cmp;
+        private final AdminUnit[] units;
+        private final long[] sequence;
+        private int size;
+        private long offered;
+
+        TopK(int k, Comparator<AdminUnit> cmp){
+            this.cmp = cmp;
+            units = new AdminUnit[k];
+            sequence = new long[k];
+        }
+
+        void offer(AdminUnit unit){
+            long order = offered++;
+            if (size < units.length){
+                units[size] = unit;
+                sequence[size] = order;
+                siftUp(size++);
+            }
+            else if (size > 0 && cmp.compare(unit, units[0]) < 0){
+                units[0] = unit;
+                sequence[0] = order;
+                siftDown(0, size);
+            }
+        }
+
+        /**
+         * Zwraca zapamiętane jednostki posortowane rosnąco i opróżnia kopiec
+         */
+        AdminUnit[] drainSorted(){
+            AdminUnit[] sorted = new AdminUnit[size];
+            for (int last = size - 1; last >= 0; last--){
+                sorted[last] = units[0];
+                swap(0, last);
+                siftDown(0, last);
+            }
+            size = 0;
+            return sorted;
+        }
+
+        private int compare(int i, int j){
+            int result = cmp.compare(units[i], units[j]);
+            return result != 0 ? result : Long.compare(sequence[i], sequence[j]);
+        }
+
+        private void siftUp(int i){
+            while (i > 0){
+                int parent = (i - 1) / 2;
+                if (compare(i, parent) <= 0){
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i, int end){
+            while (true){
+                int largest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < end && compare(left, largest) > 0){
+                    largest = left;
+                }
+                if (right < end && compare(right, largest) > 0){
+                    largest = right;
+                }
+                if (largest == i){
+                    return;
+                }
+                swap(i, largest);
+                i = largest;
+            }
+        }
+
+        private void swap(int i, int j){
+            AdminUnit unit = units[i];
+            units[i] = units[j];
+            units[j] = unit;
+            long order = sequence[i];
+            sequence[i] = sequence[j];
+            sequence[j] = order;
         }
-        return src.filter(p, offset, limit);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,293 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Binarny zrzut listy jednostek, który można wczytać bez ponownego parsowania CSV.
+ * Dane są zapisane kolumnowo:
+ * nagłówek (MAGIC, VERSION, liczba jednostek n), a następnie
+ * long[n] id, long[n] id rodzica (kolumny id i parent z CSV), int[n] admin_level, int[n] population, double[n] area, double[n] density,
+ * double[n] xmin, ymin, xmax, ymax, int[n] indeks rodzica (-1 gdy brak),
+ * int[n + 1] przesunięcia list dzieci, int[] indeksy dzieci (CSR),
+ * int[n + 1] przesunięcia nazw, byte[] nazwy w UTF-8.
+ */
+class AdminUnitSnapshot {
+    static final int MAGIC = 0x41554E54;
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 3 * Integer.BYTES;
+
+    private AdminUnitSnapshot() {
+    }
+
+    /**
+     * Zapisuje jednostki do pliku. Rodzic spoza listy nie jest zapisywany
+     * @param units - jednostki do zapisania
+     * @param file - plik docelowy
+     */
+    static void write(List<AdminUnit> units, Path file) throws IOException {
+        write(AdminUnitTable.of(units), file);
+    }
+
+    /**
+     * Koduje tabelę jednostek w formacie pliku
+     * @param table - tabela do zapisania
+     * @param allocator - tworzy bufor o podanym rozmiarze (np. ByteBuffer::allocateDirect)
+     * @return bufor z pozycją 0 i limitem równym rozmiarowi danych
+     */
+    static ByteBuffer encode(AdminUnitTable table, IntFunction<ByteBuffer> allocator) throws IOException {
+        int n = table.size();
+        byte[][] names = new byte[n][];
+        int namesLength = 0;
+        for (int i = 0; i < n; i++) {
+            String name = table.name(i);
+            names[i] = name == null ? new byte[0] : name.getBytes(StandardCharsets.UTF_8);
+            namesLength += names[i].length;
+        }
+        int childCount = table.childOffset(n);
+
+        long size = HEADER_SIZE
+                + (long) n * (2 * Long.BYTES + 3 * Integer.BYTES + 6 * Double.BYTES)
+                + (long) (n + 1) * Integer.BYTES + (long) childCount * Integer.BYTES
+                + (long) (n + 1) * Integer.BYTES + namesLength;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot of %d units is too large".formatted(n));
+        }
+        ByteBuffer buffer = allocator.apply((int) size);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(n);
+
+        for (int i = 0; i < n; i++) {
+            buffer.putLong(table.id(i));
+        }
+        for (int i = 0; i < n; i++) {
+            buffer.putLong(table.parentId(i));
+        }
+        for (int i = 0; i < n; i++) {
+            buffer.putInt(table.adminLevel(i));
+        }
+        for (int i = 0; i < n; i++) {
+            buffer.putInt(table.population(i));
+        }
+        for (int i = 0; i < n; i++) {
+            buffer.putDouble(table.area(i));
+        }
+        for (int i = 0; i < n; i++) {
+            buffer.putDouble(table.density(i));
+        }
+        for (int i = 0; i < n; i++) {
+            buffer.putDouble(table.xmin(i));
+        }
+        for (int i = 0; i < n; i++) {
+            buffer.putDouble(table.ymin(i));
+        }
+        for (int i = 0; i < n; i++) {
+            buffer.putDouble(table.xmax(i));
+        }
+        for (int i = 0; i < n; i++) {
+            buffer.putDouble(table.ymax(i));
+        }
+        for (int i = 0; i < n; i++) {
+            buffer.putInt(table.parent(i));
+        }
+        for (int i = 0; i <= n; i++) {
+            buffer.putInt(table.childOffset(i));
+        }
+        for (int i = 0; i < childCount; i++) {
+            buffer.putInt(table.child(i));
+        }
+
+        int offset = 0;
+        buffer.putInt(offset);
+        for (byte[] name : names) {
+            offset += name.length;
+            buffer.putInt(offset);
+        }
+        for (byte[] name : names) {
+            buffer.put(name);
+        }
+
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Zapisuje tabelę jednostek do pliku
+     * @param table - tabela do zapisania
+     * @param file - plik docelowy
+     */
+    static void write(AdminUnitTable table, Path file) throws IOException {
+        ByteBuffer buffer = encode(table, ByteBuffer::allocate);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Wczytuje jednostki z pliku mapowanego do pamięci, odtwarzając rodziców i dzieci
+     * @param file - plik zapisany przez write()
+     * @return jednostki w kolejności zapisu
+     */
+    static List<AdminUnit> read(Path file) throws IOException {
+        return readTable(file).toUnits();
+    }
+
+    /**
+     * Wczytuje plik mapowany do pamięci jako tabelę kolumnową - bez tworzenia obiektów AdminUnit
+     * @param file - plik zapisany przez write()
+     * @return tabela z wierszami w kolejności zapisu
+     */
+    static AdminUnitTable readTable(Path file) throws IOException {
+        ByteBuffer buffer = map(file);
+        int n = buffer.getInt(HEADER_SIZE - Integer.BYTES);
+        buffer.position(HEADER_SIZE);
+
+        long[] ids = readLongs(buffer, n);
+        long[] parentIds = readLongs(buffer, n);
+        int[] adminLevel = readInts(buffer, n);
+        int[] population = readInts(buffer, n);
+        double[] area = readDoubles(buffer, n);
+        double[] density = readDoubles(buffer, n);
+        double[] xmin = readDoubles(buffer, n);
+        double[] ymin = readDoubles(buffer, n);
+        double[] xmax = readDoubles(buffer, n);
+        double[] ymax = readDoubles(buffer, n);
+        int[] parent = readInts(buffer, n);
+        int[] childOffsets = readInts(buffer, n + 1);
+        int[] children = readInts(buffer, childOffsets[n]);
+        int[] nameOffsets = readInts(buffer, n + 1);
+        byte[] nameBytes = new byte[nameOffsets[n]];
+        buffer.get(nameBytes);
+
+        String[] names = new String[n];
+        for (int i = 0; i < n; i++) {
+            names[i] = new String(nameBytes, nameOffsets[i], nameOffsets[i + 1] - nameOffsets[i], StandardCharsets.UTF_8);
+        }
+        return new HeapAdminUnitTable(ids, parentIds, names, adminLevel, population, area, density, xmin, ymin, xmax, ymax,
+                parent, childOffsets, children);
+    }
+
+    /**
+     * Mapuje plik do pamięci (bez kopiowania na stertę) - jednostki są czytane z pliku przy każdym odczycie
+     * @param file - plik zapisany przez write(), najwyżej 2 GB (większy zgłasza IOException)
+     * @return tabela z wierszami w kolejności zapisu
+     */
+    static AdminUnitTable mapTable(Path file) throws IOException {
+        return new OffHeapAdminUnitTable(map(file));
+    }
+
+    /**
+     * Mapuje plik do pamięci i sprawdza nagłówek oraz długości sekcji, żeby uszkodzony plik
+     * zgłaszał IOException zamiast wyjątków przy odczycie kolumn
+     */
+    private static ByteBuffer map(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("%s is larger than 2 GB, the limit of a single mapped buffer".formatted(file));
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("%s is not an admin unit snapshot".formatted(file));
+        }
+        int version = buffer.getInt(Integer.BYTES);
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version %d (expected %d)".formatted(version, VERSION));
+        }
+        validate(buffer, file);
+        return buffer;
+    }
+
+    /**
+     * Sprawdza, czy każda sekcja mieści się w pliku, przesunięcia list dzieci i nazw zaczynają się od 0
+     * i nie maleją, indeksy rodziców i dzieci wskazują wiersze tabeli, a nazwy kończą się z końcem pliku
+     */
+    private static void validate(ByteBuffer buffer, Path file) throws IOException {
+        long limit = buffer.limit();
+        int n = buffer.getInt(HEADER_SIZE - Integer.BYTES);
+        if (n < 0) {
+            throw corrupt(file, "negative unit count %d".formatted(n));
+        }
+        long parentStart = HEADER_SIZE + (long) n * (2 * Long.BYTES + 2 * Integer.BYTES + 6 * Double.BYTES);
+        long childOffsetsStart = parentStart + (long) n * Integer.BYTES;
+        long childrenStart = childOffsetsStart + (long) (n + 1) * Integer.BYTES;
+        if (childrenStart > limit) {
+            throw corrupt(file, "%d units do not fit in %d bytes".formatted(n, limit));
+        }
+        for (int i = 0; i < n; i++) {
+            int parent = buffer.getInt((int) (parentStart + (long) i * Integer.BYTES));
+            if (parent < -1 || parent >= n) {
+                throw corrupt(file, "parent row %d out of range".formatted(parent));
+            }
+        }
+        int childCount = checkOffsets(buffer, (int) childOffsetsStart, n, file, "child");
+
+        long nameOffsetsStart = childrenStart + (long) childCount * Integer.BYTES;
+        long namesStart = nameOffsetsStart + (long) (n + 1) * Integer.BYTES;
+        if (namesStart > limit) {
+            throw corrupt(file, "%d children do not fit in %d bytes".formatted(childCount, limit));
+        }
+        for (int i = 0; i < childCount; i++) {
+            int child = buffer.getInt((int) (childrenStart + (long) i * Integer.BYTES));
+            if (child < 0 || child >= n) {
+                throw corrupt(file, "child row %d out of range".formatted(child));
+            }
+        }
+        int namesLength = checkOffsets(buffer, (int) nameOffsetsStart, n, file, "name");
+        if (namesStart + namesLength != limit) {
+            throw corrupt(file, "names take %d bytes, but %d remain".formatted(namesLength, limit - namesStart));
+        }
+    }
+
+    /**
+     * Sprawdza n + 1 przesunięć od pozycji start
+     * @return ostatnie przesunięcie - długość opisywanej sekcji
+     */
+    private static int checkOffsets(ByteBuffer buffer, int start, int n, Path file, String section) throws IOException {
+        int previous = buffer.getInt(start);
+        if (previous != 0) {
+            throw corrupt(file, "%s offsets start at %d".formatted(section, previous));
+        }
+        for (int i = 1; i <= n; i++) {
+            int offset = buffer.getInt(start + i * Integer.BYTES);
+            if (offset < previous) {
+                throw corrupt(file, "%s offsets decrease at row %d".formatted(section, i));
+            }
+            previous = offset;
+        }
+        return previous;
+    }
+
+    private static IOException corrupt(Path file, String reason) {
+        return new IOException("%s is a corrupt admin unit snapshot: %s".formatted(file, reason));
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + count * Integer.BYTES);
+        return values;
+    }
+
+    private static long[] readLongs(ByteBuffer buffer, int count) {
+        long[] values = new long[count];
+        buffer.asLongBuffer().get(values);
+        buffer.position(buffer.position() + count * Long.BYTES);
+        return values;
+    }
+
+    private static double[] readDoubles(ByteBuffer buffer, int count) {
+        double[] values = new double[count];
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + count * Double.BYTES);
+        return values;
+    }
+}
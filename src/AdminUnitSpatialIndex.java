@@ -0,0 +1,94 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Indeks przestrzenny jednostek listy - osobne R-drzewo BoundingBox dla każdego admin_level.
+ * Zwraca pozycje jednostek w liście, więc wyniki można przetwarzać w kolejności listy.
+ */
+class AdminUnitSpatialIndex {
+    private static final int[] NO_POSITIONS = new int[0];
+
+    private final Map<Integer, LevelIndex> levels = new HashMap<>();
+
+    private static class LevelIndex {
+        BoundingBoxTree tree;
+        /**
+         * Wszystkie pozycje jednostek na poziomie
+         */
+        int[] positions;
+        /**
+         * Pozycje jednostek z pustym BoundingBox - nie ma ich w drzewie,
+         * a BoundingBox.intersects() może dla nich zwrócić true
+         */
+        int[] unindexed;
+    }
+
+    AdminUnitSpatialIndex(AdminUnitTable table) {
+        Map<Integer, List<Integer>> positionsByLevel = new HashMap<>();
+        for (int i = 0; i < table.size(); i++) {
+            positionsByLevel.computeIfAbsent(table.adminLevel(i), level -> new ArrayList<>()).add(i);
+        }
+
+        for (Map.Entry<Integer, List<Integer>> entry : positionsByLevel.entrySet()) {
+            List<Integer> positions = entry.getValue();
+            int n = positions.size();
+            int[] ids = new int[n];
+            double[] xmin = new double[n];
+            double[] ymin = new double[n];
+            double[] xmax = new double[n];
+            double[] ymax = new double[n];
+            int[] unindexed = new int[n];
+            int indexed = 0;
+            int unindexedCount = 0;
+            for (int position : positions) {
+                if (Double.isNaN(table.xmin(position))) {
+                    unindexed[unindexedCount++] = position;
+                    continue;
+                }
+                ids[indexed] = position;
+                xmin[indexed] = table.xmin(position);
+                ymin[indexed] = table.ymin(position);
+                xmax[indexed] = table.xmax(position);
+                ymax[indexed] = table.ymax(position);
+                indexed++;
+            }
+
+            LevelIndex levelIndex = new LevelIndex();
+            levelIndex.tree = new BoundingBoxTree(Arrays.copyOf(ids, indexed), Arrays.copyOf(xmin, indexed),
+                    Arrays.copyOf(ymin, indexed), Arrays.copyOf(xmax, indexed), Arrays.copyOf(ymax, indexed));
+            levelIndex.positions = positions.stream().mapToInt(Integer::intValue).toArray();
+            levelIndex.unindexed = Arrays.copyOf(unindexed, unindexedCount);
+            levels.put(entry.getKey(), levelIndex);
+        }
+    }
+
+    /**
+     * Zwraca pozycje (rosnąco) jednostek na poziomie adminLevel, których BoundingBox może przecinać bbox.
+     * Wynik jest nadzbiorem jednostek spełniających bbox.intersects() - zawiera też jednostki z pustym BoundingBox,
+     * a dla pustego bbox wszystkie jednostki poziomu
+     */
+    int[] candidates(int adminLevel, BoundingBox bbox) {
+        LevelIndex levelIndex = levels.get(adminLevel);
+        if (levelIndex == null) {
+            return NO_POSITIONS;
+        }
+        if (bbox == null || bbox.isEmpty()) {
+            return levelIndex.positions;
+        }
+        int[][] result = {new int[16]};
+        int[] count = {0};
+        levelIndex.tree.search(bbox.getXmin(), bbox.getYmin(), bbox.getXmax(), bbox.getYmax(), position -> {
+            if (count[0] == result[0].length) {
+                result[0] = Arrays.copyOf(result[0], count[0] * 2);
+            }
+            result[0][count[0]++] = position;
+        });
+        int[] candidates = Arrays.copyOf(result[0], count[0] + levelIndex.unindexed.length);
+        System.arraycopy(levelIndex.unindexed, 0, candidates, count[0], levelIndex.unindexed.length);
+        Arrays.sort(candidates);
+        return candidates;
+    }
+}
@@ -0,0 +1,297 @@
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.IntPredicate;
+
+/**
+ * Kolumnowa (struct-of-arrays) reprezentacja listy jednostek. Wiersz i opisuje jednostkę na pozycji i,
+ * rodzic i dzieci są podawane jako numery wierszy (-1 gdy rodzica nie ma w tabeli),
+ * a dzieci wiersza i to child(j) dla j z zakresu [childOffset(i), childOffset(i + 1)).
+ * Pusty BoundingBox jest zapisany jako NaN we wszystkich czterech kolumnach.
+ * Przeszukiwanie kolumn liczbowych nie tworzy obiektów AdminUnit.
+ */
+abstract class AdminUnitTable {
+    private static final int[] NO_ROWS = new int[0];
+
+    private UnitList units;
+
+    abstract int size();
+
+    /**
+     * Identyfikator jednostki z pliku (kolumna id)
+     */
+    abstract long id(int row);
+
+    /**
+     * Identyfikator rodzica z pliku (kolumna parent) - zachowany także wtedy, gdy rodzica nie ma w tabeli
+     */
+    abstract long parentId(int row);
+
+    abstract String name(int row);
+
+    abstract int adminLevel(int row);
+
+    abstract int population(int row);
+
+    abstract double area(int row);
+
+    abstract double density(int row);
+
+    abstract double xmin(int row);
+
+    abstract double ymin(int row);
+
+    abstract double xmax(int row);
+
+    abstract double ymax(int row);
+
+    abstract int parent(int row);
+
+    abstract int childOffset(int row);
+
+    abstract int child(int index);
+
+    /**
+     * Tworzy tabelę z jednostek listy. Rodzic i dzieci spoza listy są pomijani
+     * @param units - jednostki w kolejności wierszy
+     */
+    static AdminUnitTable of(List<AdminUnit> units) {
+        return HeapAdminUnitTable.of(units);
+    }
+
+    /**
+     * Zwraca wiersze, dla których rowFilter zwraca true, rosnąco
+     */
+    int[] rowsWhere(IntPredicate rowFilter) {
+        RowBuffer rows = new RowBuffer();
+        for (int row = 0, n = size(); row < n; row++) {
+            if (rowFilter.test(row)) {
+                rows.add(row);
+            }
+        }
+        return rows.toArray();
+    }
+
+    int[] rowsWithLevel(int adminLevel) {
+        RowBuffer rows = new RowBuffer();
+        for (int row = 0, n = size(); row < n; row++) {
+            if (adminLevel(row) == adminLevel) {
+                rows.add(row);
+            }
+        }
+        return rows.toArray();
+    }
+
+    /**
+     * Zwraca wiersze z population w przedziale [min, max]
+     */
+    int[] rowsWithPopulationBetween(int min, int max) {
+        RowBuffer rows = new RowBuffer();
+        for (int row = 0, n = size(); row < n; row++) {
+            int population = population(row);
+            if (population >= min && population <= max) {
+                rows.add(row);
+            }
+        }
+        return rows.toArray();
+    }
+
+    /**
+     * Zwraca wiersze z area w przedziale [min, max]
+     */
+    int[] rowsWithAreaBetween(double min, double max) {
+        RowBuffer rows = new RowBuffer();
+        for (int row = 0, n = size(); row < n; row++) {
+            double area = area(row);
+            if (area >= min && area <= max) {
+                rows.add(row);
+            }
+        }
+        return rows.toArray();
+    }
+
+    /**
+     * Zwraca wiersze, których BoundingBox przecina bbox - tak jak BoundingBox.intersects()
+     */
+    int[] rowsIntersecting(BoundingBox bbox) {
+        RowBuffer rows = new RowBuffer();
+        if (bbox.isEmpty()) {
+            for (int row = 0, n = size(); row < n; row++) {
+                if (!Double.isNaN(xmin(row))) {
+                    rows.add(row);
+                }
+            }
+            return rows.toArray();
+        }
+        double bxmin = bbox.getXmin();
+        double bymin = bbox.getYmin();
+        double bxmax = bbox.getXmax();
+        double bymax = bbox.getYmax();
+        for (int row = 0, n = size(); row < n; row++) {
+            if (!(xmin(row) > bxmax) && !(bxmin > xmax(row)) && !(ymin(row) > bymax) && !(bymin > ymax(row))) {
+                rows.add(row);
+            }
+        }
+        return rows.toArray();
+    }
+
+    /**
+     * Rosnąca tablica numerów wierszy
+     */
+    private static class RowBuffer {
+        private int[] rows = new int[64];
+        private int count;
+
+        void add(int row) {
+            if (count == rows.length) {
+                rows = Arrays.copyOf(rows, count * 2);
+            }
+            rows[count++] = row;
+        }
+
+        int[] toArray() {
+            return count == 0 ? NO_ROWS : Arrays.copyOf(rows, count);
+        }
+    }
+
+    /**
+     * Zwraca tabelę z wierszami rows tej tabeli (np. permutacją po sortowaniu) - kolumny nie są kopiowane,
+     * a kolumny rodzica i dzieci pomijają wiersze spoza rows. Jednostki wybranych wierszy są jednostkami tej tabeli
+     * @param rows - wiersze tej tabeli w kolejności nowej tabeli
+     */
+    AdminUnitTable select(int[] rows) {
+        return new SelectedAdminUnitTable(this, rows);
+    }
+
+    /**
+     * Tworzy jednostkę dla wiersza razem z rodzicem (rekurencyjnie) i widokiem dzieci
+     */
+    AdminUnit unit(int row) {
+        return new RowUnit(this, row);
+    }
+
+    /**
+     * Tworzy zwykłe jednostki dla wszystkich wierszy - każdy wiersz ma dokładnie jeden obiekt,
+     * rodzice są jednostkami z wyniku, a dzieci zwykłymi listami, więc jednostki można dalej zmieniać
+     * @return jednostki w kolejności wierszy
+     */
+    List<AdminUnit> toUnits() {
+        int n = size();
+        List<AdminUnit> units = new ArrayList<>(n);
+        for (int row = 0; row < n; row++) {
+            AdminUnit unit = new AdminUnit(name(row), adminLevel(row), population(row), area(row), density(row), null,
+                    new BoundingBox(xmin(row), ymin(row), xmax(row), ymax(row)));
+            unit.id = id(row);
+            unit.parentId = parentId(row);
+            units.add(unit);
+        }
+        for (int row = 0; row < n; row++) {
+            AdminUnit unit = units.get(row);
+            int parent = parent(row);
+            if (parent >= 0) {
+                unit.setParent(units.get(parent));
+            }
+            int childStart = childOffset(row);
+            int childEnd = childOffset(row + 1);
+            if (childEnd > childStart) {
+                List<AdminUnit> children = new ArrayList<>(childEnd - childStart);
+                for (int i = childStart; i < childEnd; i++) {
+                    children.add(units.get(child(i)));
+                }
+                unit.setChildren(children);
+            }
+        }
+        return units;
+    }
+
+    /**
+     * Zwraca niemodyfikowalny widok tabeli jako listy jednostek. Obiekt AdminUnit jest tworzony przy każdym
+     * odczycie i nie jest zapamiętywany, więc tabela nie utrzymuje przy życiu odczytanych jednostek.
+     * Dwie jednostki tego samego wiersza są równe (equals()), ale nie są tym samym obiektem.
+     * Zmiany pól jednostek nie są zapisywane w tabeli
+     */
+    synchronized List<AdminUnit> asList() {
+        if (units == null) {
+            units = new UnitList();
+        }
+        return units;
+    }
+
+    private class UnitList extends AbstractList<AdminUnit> implements RandomAccess {
+        @Override
+        public AdminUnit get(int row) {
+            if (row < 0 || row >= size()) {
+                throw new IndexOutOfBoundsException(row);
+            }
+            return unit(row);
+        }
+
+        @Override
+        public int size() {
+            return AdminUnitTable.this.size();
+        }
+    }
+
+    /**
+     * Jednostka odczytana z wiersza tabeli - równość wyznacza tabela i numer wiersza
+     */
+    private static class RowUnit extends AdminUnit {
+        private final AdminUnitTable table;
+        private final int row;
+
+        RowUnit(AdminUnitTable table, int row) {
+            super(table.name(row), table.adminLevel(row), table.population(row), table.area(row), table.density(row),
+                    null, new BoundingBox(table.xmin(row), table.ymin(row), table.xmax(row), table.ymax(row)));
+            this.table = table;
+            this.row = row;
+            id = table.id(row);
+            parentId = table.parentId(row);
+            int parent = table.parent(row);
+            if (parent >= 0) {
+                setParent(table.unit(parent));
+            }
+            int childStart = table.childOffset(row);
+            int childEnd = table.childOffset(row + 1);
+            if (childEnd > childStart) {
+                setChildren(new ChildList(table, childStart, childEnd));
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof RowUnit other && other.table == table && other.row == row;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(table) * 31 + row;
+        }
+    }
+
+    private static class ChildList extends AbstractList<AdminUnit> implements RandomAccess {
+        private final AdminUnitTable table;
+        private final int start;
+        private final int end;
+
+        ChildList(AdminUnitTable table, int start, int end) {
+            this.table = table;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public AdminUnit get(int index) {
+            if (index < 0 || index >= end - start) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return table.unit(table.child(start + index));
+        }
+
+        @Override
+        public int size() {
+            return end - start;
+        }
+    }
+}
@@ -3,11 +3,23 @@ import java.util.Objects;
 import static java.lang.Math.*;
 
 public class BoundingBox {
+    /**
+     * Margines bezwzględny dla porównania kwadratu cięciwy w isWithin() - pokrywa błąd zaokrągleń wektorów środków
+     */
+    private static final double CHORD_MARGIN = 1e-12;
+
     private double xmin;
     private double ymin;
     private double xmax;
     private double ymax;
+    /**
+     * Środek w radianach wraz z wartościami potrzebnymi do liczenia odległości,
+     * wyznaczany przy pierwszym użyciu i kasowany przy każdej zmianie współrzędnych
+     */
+    private Center center;
 
+    private record Center(double latitude, double longitude, double cosLatitude, double x, double y, double z) {
+    }
 
     public double getXmin() {
         return xmin;
@@ -47,6 +59,7 @@ public class BoundingBox {
             updateBoundingBox(x, y, x, y);
         }
         else {
+            center = null;
             if (x < xmin){
                 xmin = x;
             }
@@ -110,6 +123,7 @@ public class BoundingBox {
             updateBoundingBox(bb.getXmin(), bb.getYmin(), bb.getXmax(), bb.getYmax());
         }
         else {
+            center = null;
             xmin = Math.min(xmin, bb.getXmin());
             xmax = Math.max(xmax, bb.getXmax());
             ymin = Math.min(ymin, bb.getYmin());
@@ -179,14 +193,76 @@ public class BoundingBox {
      * Gotowy kod można znaleźć w Internecie...
      */
     double distanceTo(BoundingBox bbx){
-        if (isEmpty() || bbx.isEmpty()){
-            throw new EmptyBoundingBoxException();
+        Center from = center();
+        Center to = bbx.center();
+        return haversine(from, to);
+    }
+
+    /**
+     * Sprawdza, czy odległość pomiędzy środkami this i bbx wynosi co najwyżej km.
+     * Wynik jest taki sam jak distanceTo(bbx) <= km, ale zwykle wystarcza porównanie kwadratu cięciwy
+     * wyznaczonego z zapamiętanych wektorów środków - wzór haversine jest liczony tylko blisko progu
+     * @param bbx prostokąt, do którego liczona jest odległość
+     * @param km maksymalna odległość w km
+     * @return if !isEmpty czy środki leżą w odległości co najwyżej km, else wyrzuca wyjątek
+     */
+    boolean isWithin(BoundingBox bbx, double km){
+        return isWithin(bbx, km, chordThreshold(km));
+    }
+
+    /**
+     * Działa jak isWithin(bbx, km) z progiem wyznaczonym wcześniej - przy porównywaniu wielu par
+     * z tym samym km próg wystarczy wyznaczyć raz
+     * @param bbx prostokąt, do którego liczona jest odległość
+     * @param km maksymalna odległość w km
+     * @param threshold chordThreshold(km)
+     */
+    boolean isWithin(BoundingBox bbx, double km, double threshold){
+        Center from = center();
+        Center to = bbx.center();
+        if (!(km >= 0)){
+            return false;
+        }
+        double dx = from.x - to.x;
+        double dy = from.y - to.y;
+        double dz = from.z - to.z;
+        double chordSquared = dx * dx + dy * dy + dz * dz;
+        double margin = CHORD_MARGIN + threshold * 1e-9;
+        if (chordSquared < threshold - margin){
+            return true;
+        }
+        if (chordSquared > threshold + margin){
+            return false;
+        }
+        return haversine(from, to) <= km;
+    }
+
+    /**
+     * Oblicza odległości od środka this do środków wszystkich targets
+     * @param targets prostokąty, do których liczona jest odległość
+     * @param out tablica na wyniki - out[i] = distanceTo(targets[i])
+     */
+    void distancesTo(BoundingBox[] targets, double[] out){
+        Center from = center();
+        for (int i = 0; i < targets.length; i++) {
+            out[i] = haversine(from, targets[i].center());
         }
-        double lat1 = toRadians(this.getCenterY());
-        double lon1 = toRadians(this.getCenterX());
+    }
 
-        double lat2 = toRadians(bbx.getCenterY());
-        double lon2 = toRadians(bbx.getCenterX());
+    /**
+     * Oblicza odległość w km pomiędzy punktami (lat1, lon1) i (lat2, lon2) wzorem haversine
+     * @param lat1 - szerokość geograficzna pierwszego punktu w stopniach
+     * @param lon1 - długość geograficzna pierwszego punktu w stopniach
+     * @param lat2 - szerokość geograficzna drugiego punktu w stopniach
+     * @param lon2 - długość geograficzna drugiego punktu w stopniach
+     * @return odległość w km
+     */
+    static double haversine(double lat1, double lon1, double lat2, double lon2){
+        lat1 = toRadians(lat1);
+        lon1 = toRadians(lon1);
+
+        lat2 = toRadians(lat2);
+        lon2 = toRadians(lon2);
 
         final double R = 6371.0;
 
@@ -201,7 +277,50 @@ public class BoundingBox {
         return R * c;
     }
 
+    /**
+     * Zwraca zapamiętany środek, wyznaczając go przy pierwszym użyciu
+     * @return if !isEmpty() środek else wyrzuca wyjątek
+     */
+    private Center center(){
+        Center center = this.center;
+        if (center == null){
+            double latitude = toRadians(getCenterY());
+            double longitude = toRadians(getCenterX());
+            double cosLatitude = cos(latitude);
+            center = new Center(latitude, longitude, cosLatitude,
+                    cosLatitude * cos(longitude), cosLatitude * sin(longitude), sin(latitude));
+            this.center = center;
+        }
+        return center;
+    }
+
+    /**
+     * Zwraca próg dla isWithin() - kwadrat cięciwy odpowiadającej odległości km
+     * @param km maksymalna odległość w km
+     */
+    static double chordThreshold(double km){
+        return CenterTree.chordSquared(km);
+    }
+
+    /**
+     * Wzór haversine dla zapamiętanych środków - daje ten sam wynik co haversine() dla współrzędnych w stopniach
+     */
+    private static double haversine(Center from, Center to){
+        final double R = 6371.0;
+
+        double dLat = to.latitude - from.latitude;
+        double dLon = to.longitude - from.longitude;
+
+        double a = sin(dLat / 2) * sin(dLat / 2) +
+                from.cosLatitude * to.cosLatitude *
+                        sin(dLon / 2) * sin(dLon / 2);
+        double c = 2 * atan2(sqrt(a), sqrt(1 - a));
+
+        return R * c;
+    }
+
     private void updateBoundingBox(double xmin, double ymin, double xmax, double ymax){
+        center = null;
         this.xmin = xmin;
         this.ymin = ymin;
         this.xmax = xmax;
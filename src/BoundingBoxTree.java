@@ -0,0 +1,168 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Statyczne R-drzewo prostokątów budowane metodą STR (Sort-Tile-Recursive).
+ * Każdy prostokąt ma przypisany identyfikator int, a zapytania zwracają identyfikatory
+ * prostokątów przecinających się z zadanym prostokątem - tak jak BoundingBox.intersects().
+ * Prostokąty nie mogą zawierać wartości NaN.
+ */
+class BoundingBoxTree {
+    private static final int NODE_CAPACITY = 16;
+
+    /**
+     * Poziomy drzewa - poziom 0 to liście (prostokąty wejściowe), ostatni to korzeń.
+     */
+    private final List<Level> levels = new ArrayList<>();
+    private final int size;
+
+    private static class Level {
+        final double[] xmin;
+        final double[] ymin;
+        final double[] xmax;
+        final double[] ymax;
+        /**
+         * Dla liści - identyfikatory prostokątów, dla węzłów - początek zakresu dzieci na poziomie niżej
+         */
+        final int[] pointers;
+        final int[] childEnds;
+
+        Level(int size, boolean leaf) {
+            xmin = new double[size];
+            ymin = new double[size];
+            xmax = new double[size];
+            ymax = new double[size];
+            pointers = new int[size];
+            childEnds = leaf ? null : new int[size];
+        }
+
+        int size() {
+            return xmin.length;
+        }
+
+        Level permute(Integer[] order) {
+            Level permuted = new Level(order.length, childEnds == null);
+            for (int i = 0; i < order.length; i++) {
+                int j = order[i];
+                permuted.xmin[i] = xmin[j];
+                permuted.ymin[i] = ymin[j];
+                permuted.xmax[i] = xmax[j];
+                permuted.ymax[i] = ymax[j];
+                permuted.pointers[i] = pointers[j];
+                if (childEnds != null) {
+                    permuted.childEnds[i] = childEnds[j];
+                }
+            }
+            return permuted;
+        }
+    }
+
+    /**
+     * @param ids - identyfikatory prostokątów
+     * @param xmin, ymin, xmax, ymax - współrzędne prostokątów (tablice tej samej długości co ids)
+     */
+    BoundingBoxTree(int[] ids, double[] xmin, double[] ymin, double[] xmax, double[] ymax) {
+        size = ids.length;
+        Level leaves = new Level(size, true);
+        System.arraycopy(xmin, 0, leaves.xmin, 0, size);
+        System.arraycopy(ymin, 0, leaves.ymin, 0, size);
+        System.arraycopy(xmax, 0, leaves.xmax, 0, size);
+        System.arraycopy(ymax, 0, leaves.ymax, 0, size);
+        System.arraycopy(ids, 0, leaves.pointers, 0, size);
+
+        Level level = leaves;
+        while (true) {
+            level = level.permute(sortTileRecursive(level));
+            levels.add(level);
+            if (level.size() <= NODE_CAPACITY) {
+                break;
+            }
+            level = pack(level);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Wywołuje action dla identyfikatora każdego prostokąta przecinającego się z [xmin, xmax] x [ymin, ymax]
+     */
+    void search(double xmin, double ymin, double xmax, double ymax, IntConsumer action) {
+        if (size == 0) {
+            return;
+        }
+        int top = levels.size() - 1;
+        Level root = levels.get(top);
+        for (int i = 0; i < root.size(); i++) {
+            search(top, i, xmin, ymin, xmax, ymax, action);
+        }
+    }
+
+    private void search(int depth, int index, double xmin, double ymin, double xmax, double ymax, IntConsumer action) {
+        Level level = levels.get(depth);
+        if (level.xmin[index] > xmax || xmin > level.xmax[index] || level.ymin[index] > ymax || ymin > level.ymax[index]) {
+            return;
+        }
+        if (depth == 0) {
+            action.accept(level.pointers[index]);
+            return;
+        }
+        for (int child = level.pointers[index]; child < level.childEnds[index]; child++) {
+            search(depth - 1, child, xmin, ymin, xmax, ymax, action);
+        }
+    }
+
+    /**
+     * Ustala kolejność STR: sortowanie po środku x, podział na pionowe pasy,
+     * a w każdym pasie sortowanie po środku y
+     */
+    private static Integer[] sortTileRecursive(Level level) {
+        int n = level.size();
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(i -> level.xmin[i] + level.xmax[i]));
+        int nodes = (n + NODE_CAPACITY - 1) / NODE_CAPACITY;
+        int slices = (int) Math.ceil(Math.sqrt(nodes));
+        int sliceSize = slices * NODE_CAPACITY;
+        for (int start = 0; start < n; start += sliceSize) {
+            Arrays.sort(order, start, Math.min(start + sliceSize, n),
+                    Comparator.comparingDouble(i -> level.ymin[i] + level.ymax[i]));
+        }
+        return order;
+    }
+
+    /**
+     * Tworzy poziom wyżej, w którym każdy węzeł obejmuje NODE_CAPACITY kolejnych elementów poziomu level
+     */
+    private static Level pack(Level level) {
+        int n = level.size();
+        Level parents = new Level((n + NODE_CAPACITY - 1) / NODE_CAPACITY, false);
+        for (int p = 0; p < parents.size(); p++) {
+            int start = p * NODE_CAPACITY;
+            int end = Math.min(start + NODE_CAPACITY, n);
+            double xmin = Double.POSITIVE_INFINITY;
+            double ymin = Double.POSITIVE_INFINITY;
+            double xmax = Double.NEGATIVE_INFINITY;
+            double ymax = Double.NEGATIVE_INFINITY;
+            for (int i = start; i < end; i++) {
+                xmin = Math.min(xmin, level.xmin[i]);
+                ymin = Math.min(ymin, level.ymin[i]);
+                xmax = Math.max(xmax, level.xmax[i]);
+                ymax = Math.max(ymax, level.ymax[i]);
+            }
+            parents.xmin[p] = xmin;
+            parents.ymin[p] = ymin;
+            parents.xmax[p] = xmax;
+            parents.ymax[p] = ymax;
+            parents.pointers[p] = start;
+            parents.childEnds[p] = end;
+        }
+        return parents;
+    }
+}
@@ -0,0 +1,448 @@
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+
+/**
+ * Odczyt pól jednego wiersza CSV - wspólny dla CSVReader (bieżący wiersz) i CSVRecord (kopia wiersza).
+ * Wiersz leży w buforze źródła input, a pole i zajmuje w nim pozycje [fieldBounds[2i], fieldBounds[2i + 1]).
+ * Obiekty String powstają dopiero przy odczycie pola
+ */
+abstract class CSVFields {
+    private static final String ISO_DATE_PATTERN = "yyyy-MM-dd";
+    private static final String ISO_TIME_PATTERN = "HH:mm";
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    final CSVInput input;
+    final Map<String,Integer> columnLabelsToInt;
+    boolean[] projection;
+    int[] fieldBounds;
+    int fieldCount;
+    int recordLength;
+
+    /**
+     * @param input - źródło z wierszem
+     * @param columnLabelsToInt - indeksy kolumn według nazw z nagłówka (współdzielone, nie kopiowane)
+     * @param projection - czytane kolumny lub null dla wszystkich (współdzielone, nie kopiowane)
+     * @param fieldBounds - granice pól
+     */
+    CSVFields(CSVInput input, Map<String,Integer> columnLabelsToInt, boolean[] projection, int[] fieldBounds) {
+        this.input = input;
+        this.columnLabelsToInt = columnLabelsToInt;
+        this.projection = projection;
+        this.fieldBounds = fieldBounds;
+    }
+
+    String slice(int columnIndex) {
+        return input.substring(fieldBounds[2 * columnIndex], fieldBounds[2 * columnIndex + 1]);
+    }
+
+    private void checkIndex(int columnIndex) {
+        if(columnIndex < 0 || columnIndex >= recordLength){
+            throw new InvalidIndexException("Column index out of bounds\n Actual: %d\n Max_index: %d"
+                    .formatted(columnIndex,recordLength));
+        }
+        if (!isProjected(columnIndex)) {
+            throw new InvalidIndexException("Column %d is not projected".formatted(columnIndex));
+        }
+    }
+
+    boolean isProjected(int columnIndex) {
+        return projection == null || (columnIndex < projection.length && projection[columnIndex]);
+    }
+
+    int getRecordLength(){
+        return recordLength;
+    }
+
+    boolean isMissing(int columnIndex){
+        if (columnIndex < 0 || !isProjected(columnIndex)) {
+            throw new InvalidIndexException("Column %d is not projected".formatted(columnIndex));
+        }
+        return columnIndex >= fieldCount;
+    }
+
+    boolean isMissing(String columnLabel){
+        return isMissing(indexOf(columnLabel));
+    }
+
+    String get(int columnIndex){
+        checkIndex(columnIndex);
+        if (isMissing(columnIndex)){
+            return "";
+        }
+        return slice(columnIndex);
+    }
+
+    String get(String columnLabel) {
+        return get(indexOf(columnLabel));
+    }
+
+    /**
+     * Parsuje liczbę całkowitą bezpośrednio z bufora.
+     * Dla nietypowego zapisu (np. cyfry spoza ASCII) lub błędu korzysta z Integer.parseInt(),
+     * który zwraca wynik lub zgłasza odpowiedni wyjątek
+     */
+    int getInt(int columnIndex){
+        checkIndex(columnIndex);
+        long value = parseLongSlice(columnIndex);
+        if (value != Long.MIN_VALUE && value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+            return (int) value;
+        }
+        return Integer.parseInt(get(columnIndex));
+    }
+
+    int getInt(String columnLabel) {
+        return getInt(indexOf(columnLabel));
+    }
+
+    /**
+     * Parsuje liczbę zmiennoprzecinkową bezpośrednio z bufora, jeżeli wynik jest dokładny
+     * (mantysa mniejsza niż 2^53 i wykładnik dziesiętny co najwyżej 22).
+     * W pozostałych przypadkach korzysta z Double.parseDouble()
+     */
+    double getDouble(int columnIndex){
+        checkIndex(columnIndex);
+        if (!isMissing(columnIndex)) {
+            double value = parseDoubleSlice(fieldBounds[2 * columnIndex], fieldBounds[2 * columnIndex + 1]);
+            if (!Double.isNaN(value)) {
+                return value;
+            }
+        }
+        return Double.parseDouble(get(columnIndex));
+    }
+
+    double getDouble(String columnLabel) {
+        return getDouble(indexOf(columnLabel));
+    }
+
+    long getLong(int columnIndex){
+        checkIndex(columnIndex);
+        long value = parseLongSlice(columnIndex);
+        if (value != Long.MIN_VALUE) {
+            return value;
+        }
+        return Long.parseLong(get(columnIndex));
+    }
+
+    long getLong(String columnLabel) {
+        return getLong(indexOf(columnLabel));
+    }
+
+    /**
+     * Jak getInt(), ale dla pustego, brakującego lub niepoprawnego pola zwraca defaultValue
+     * zamiast zgłaszać wyjątek
+     */
+    int getIntOrDefault(int columnIndex, int defaultValue){
+        checkIndex(columnIndex);
+        long value = parseLongSlice(columnIndex);
+        if (value != Long.MIN_VALUE && value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+            return (int) value;
+        }
+        if (isBlank(columnIndex)) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(get(columnIndex));
+        }
+        catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    int getIntOrDefault(String columnLabel, int defaultValue){
+        return getIntOrDefault(indexOf(columnLabel), defaultValue);
+    }
+
+    /**
+     * Jak getLong(), ale dla pustego, brakującego lub niepoprawnego pola zwraca defaultValue
+     * zamiast zgłaszać wyjątek
+     */
+    long getLongOrDefault(int columnIndex, long defaultValue){
+        checkIndex(columnIndex);
+        long value = parseLongSlice(columnIndex);
+        if (value != Long.MIN_VALUE) {
+            return value;
+        }
+        if (isBlank(columnIndex)) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(get(columnIndex));
+        }
+        catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    long getLongOrDefault(String columnLabel, long defaultValue){
+        return getLongOrDefault(indexOf(columnLabel), defaultValue);
+    }
+
+    /**
+     * Jak getDouble(), ale dla pustego, brakującego lub niepoprawnego pola zwraca defaultValue
+     * zamiast zgłaszać wyjątek
+     */
+    double getDoubleOrDefault(int columnIndex, double defaultValue){
+        checkIndex(columnIndex);
+        if (isBlank(columnIndex)) {
+            return defaultValue;
+        }
+        double value = parseDoubleSlice(fieldBounds[2 * columnIndex], fieldBounds[2 * columnIndex + 1]);
+        if (!Double.isNaN(value)) {
+            return value;
+        }
+        try {
+            return Double.parseDouble(get(columnIndex));
+        }
+        catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    double getDoubleOrDefault(String columnLabel, double defaultValue){
+        return getDoubleOrDefault(indexOf(columnLabel), defaultValue);
+    }
+
+    /**
+     * @return wartość pola lub NaN, jeżeli pole jest puste, brakujące lub niepoprawne
+     */
+    double getDoubleOrNaN(int columnIndex){
+        return getDoubleOrDefault(columnIndex, Double.NaN);
+    }
+
+    double getDoubleOrNaN(String columnLabel){
+        return getDoubleOrDefault(indexOf(columnLabel), Double.NaN);
+    }
+
+    int indexOf(String columnLabel) {
+        Integer header_number = columnLabelsToInt.get(columnLabel);
+        if (header_number == null) {
+            throw new InvalidHeaderNameException("There is no header \"%s\" ".formatted(columnLabel));
+        }
+        if (!isProjected(header_number)) {
+            throw new InvalidHeaderNameException("Column \"%s\" is not projected".formatted(columnLabel));
+        }
+        return header_number;
+    }
+
+    private boolean isBlank(int columnIndex) {
+        return isMissing(columnIndex) || fieldBounds[2 * columnIndex] == fieldBounds[2 * columnIndex + 1];
+    }
+
+    /**
+     * @return wartość pola lub Long.MIN_VALUE, jeżeli pola nie da się sparsować na szybkiej ścieżce
+     */
+    private long parseLongSlice(int columnIndex) {
+        if (isMissing(columnIndex)) {
+            return Long.MIN_VALUE;
+        }
+        int i = fieldBounds[2 * columnIndex];
+        int end = fieldBounds[2 * columnIndex + 1];
+        boolean negative = false;
+        if (i < end && (input.charAt(i) == '-' || input.charAt(i) == '+')) {
+            negative = input.charAt(i) == '-';
+            i++;
+        }
+        if (i == end || end - i > 18) {
+            return Long.MIN_VALUE;
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = input.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return Long.MIN_VALUE;
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * @return wartość pola lub NaN, jeżeli pola nie da się dokładnie sparsować na szybkiej ścieżce
+     */
+    private double parseDoubleSlice(int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (input.charAt(i) == '-' || input.charAt(i) == '+')) {
+            negative = input.charAt(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int exponent = 0;
+        int digits = 0;
+        boolean fraction = false;
+        for (; i < end; i++) {
+            char c = input.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (mantissa >= MAX_EXACT_MANTISSA / 10) {
+                    return Double.NaN;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (fraction) {
+                    exponent--;
+                }
+            }
+            else if (c == '.' && !fraction) {
+                fraction = true;
+            }
+            else if (c == 'e' || c == 'E') {
+                break;
+            }
+            else {
+                return Double.NaN;
+            }
+        }
+        if (digits == 0) {
+            return Double.NaN;
+        }
+        if (i < end) {
+            long explicitExponent = parseExponent(i + 1, end);
+            if (explicitExponent == Long.MIN_VALUE) {
+                return Double.NaN;
+            }
+            exponent += (int) explicitExponent;
+        }
+        if (exponent < -22 || exponent > 22) {
+            return Double.NaN;
+        }
+        double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+        return negative ? -value : value;
+    }
+
+    private long parseExponent(int i, int end) {
+        boolean negative = false;
+        if (i < end && (input.charAt(i) == '-' || input.charAt(i) == '+')) {
+            negative = input.charAt(i) == '-';
+            i++;
+        }
+        if (i == end || end - i > 3) {
+            return Long.MIN_VALUE;
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = input.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return Long.MIN_VALUE;
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Dla formatu HH:mm godzina jest parsowana bezpośrednio z cyfr pola,
+     * w pozostałych przypadkach używany jest formatter z pamięci podręcznej
+     */
+    LocalTime getTime(int columnIndex, String format){
+        if (format.equals(ISO_TIME_PATTERN)) {
+            LocalTime time = parseIsoTime(columnIndex);
+            if (time != null) {
+                return time;
+            }
+        }
+        return getTime(columnIndex, CSVReader.formatter(format));
+    }
+
+    LocalTime getTime(String columName, String format){
+        return getTime(indexOf(columName), format);
+    }
+
+    LocalTime getTime(int columnIndex, DateTimeFormatter formatter){
+        String time = get(columnIndex);
+        return LocalTime.parse(time, formatter);
+    }
+
+    LocalTime getTime(String columName, DateTimeFormatter formatter){
+        return getTime(indexOf(columName), formatter);
+    }
+
+    /**
+     * Dla formatu yyyy-MM-dd data jest parsowana bezpośrednio z cyfr pola,
+     * w pozostałych przypadkach używany jest formatter z pamięci podręcznej
+     */
+    LocalDate getDate(int columnIndex, String format){
+        if (format.equals(ISO_DATE_PATTERN)) {
+            LocalDate date = parseIsoDate(columnIndex);
+            if (date != null) {
+                return date;
+            }
+        }
+        return getDate(columnIndex, CSVReader.formatter(format));
+    }
+
+    LocalDate getDate(String columnName, String format){
+        return getDate(indexOf(columnName), format);
+    }
+
+    LocalDate getDate(int columnIndex, DateTimeFormatter formatter){
+        String date = get(columnIndex);
+        return LocalDate.parse(date, formatter);
+    }
+
+    LocalDate getDate(String columnName, DateTimeFormatter formatter){
+        return getDate(indexOf(columnName), formatter);
+    }
+
+    /**
+     * @return data w formacie yyyy-MM-dd lub null, jeżeli pola nie da się sparsować na szybkiej ścieżce
+     */
+    private LocalDate parseIsoDate(int columnIndex) {
+        checkIndex(columnIndex);
+        if (isMissing(columnIndex) || fieldBounds[2 * columnIndex + 1] - fieldBounds[2 * columnIndex] != 10) {
+            return null;
+        }
+        int start = fieldBounds[2 * columnIndex];
+        if (input.charAt(start + 4) != '-' || input.charAt(start + 7) != '-') {
+            return null;
+        }
+        int year = parseDigits(start, start + 4);
+        int month = parseDigits(start + 5, start + 7);
+        int day = parseDigits(start + 8, start + 10);
+        if (year < 1 || month < 1 || month > 12 || day < 1 || day > 28 && day > YearMonth.of(year, month).lengthOfMonth()) {
+            return null;
+        }
+        return LocalDate.of(year, month, day);
+    }
+
+    /**
+     * @return godzina w formacie HH:mm lub null, jeżeli pola nie da się sparsować na szybkiej ścieżce
+     */
+    private LocalTime parseIsoTime(int columnIndex) {
+        checkIndex(columnIndex);
+        if (isMissing(columnIndex) || fieldBounds[2 * columnIndex + 1] - fieldBounds[2 * columnIndex] != 5) {
+            return null;
+        }
+        int start = fieldBounds[2 * columnIndex];
+        if (input.charAt(start + 2) != ':') {
+            return null;
+        }
+        int hour = parseDigits(start, start + 2);
+        int minute = parseDigits(start + 3, start + 5);
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+            return null;
+        }
+        return LocalTime.of(hour, minute);
+    }
+
+    /**
+     * @return wartość ciągu cyfr ASCII lub -1, jeżeli fragment zawiera inny znak
+     */
+    private int parseDigits(int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = input.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,38 @@
+import java.io.IOException;
+
+/**
+ * Źródło wierszy dla CSVReader. Bieżący wiersz zajmuje pozycje [lineStart(), lineEnd())
+ * wewnętrznego bufora, a pola są opisywane wyłącznie przez pozycje w tym buforze.
+ * Wszystkie znaki sterujące CSV (separator, cudzysłów, cyfry) są znakami ASCII,
+ * więc charAt() może zwracać zarówno znaki, jak i pojedyncze bajty UTF-8.
+ */
+abstract class CSVInput {
+
+    /**
+     * Wczytuje kolejny wiersz (bez znaków końca linii).
+     * Końcem linii jest \n, \r lub \r\n - tak jak w BufferedReader.readLine()
+     * @return false, jeżeli osiągnięto koniec danych
+     */
+    abstract boolean readLine() throws IOException;
+
+    abstract int lineStart();
+
+    abstract int lineEnd();
+
+    abstract char charAt(int index);
+
+    /**
+     * Tworzy String z fragmentu bufora [start, end)
+     */
+    abstract String substring(int start, int end);
+
+    /**
+     * @return bieżący wiersz jako CharSequence indeksowany od 0 (dla separatorów będących wyrażeniami regularnymi)
+     */
+    abstract CharSequence line();
+
+    /**
+     * @return niezależna kopia bieżącego wiersza, w której wiersz zaczyna się od pozycji 0
+     */
+    abstract CSVInput copyLine();
+}
@@ -1,16 +1,33 @@
 import java.io.*;
-import java.time.LocalDate;
-import java.time.LocalTime;
+import java.nio.file.Path;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public class CSVReader extends CSVFields {
+    static final String DEFAULT_DELIMITER = ",(?=([^\"]*\"[^\"]*\")*[^\"]*$)";
+    /**
+     * Znaki, które mają specjalne znaczenie w wyrażeniu regularnym
+     */
+    static final String REGEX_METACHARACTERS = ".$|()[{^?*+\\";
+
+    private static final int INITIAL_FIELD_CAPACITY = 16;
+    private static final int FORMATTER_CACHE_SIZE = 64;
+    private static final LruCache<String, DateTimeFormatter> FORMATTERS = new LruCache<>(FORMATTER_CACHE_SIZE);
 
-public class CSVReader {
-    private final BufferedReader reader;
     private final String delimiter;
     private final boolean hasHeader;
-    private final List<String> columnLabels = new ArrayList<>();
-    private final Map<String,Integer> columnLabelsToInt = new HashMap<>();
-    private String[]current;
+    private final char separator;
+    private final boolean quoteAware;
+    private final Pattern delimiterPattern;
+    private final List<String> columnLabels;
+
+    private int lastNonEmptyField;
+    private int lastProjectedColumn = Integer.MAX_VALUE;
 
     /**
      *
@@ -20,10 +37,7 @@ public class CSVReader {
      */
 
     public CSVReader(String filename,String delimiter,boolean hasHeader) throws IOException {
-        reader = new BufferedReader(new FileReader(filename));
-        this.delimiter = delimiter;
-        this.hasHeader = hasHeader;
-        if(hasHeader)parseHeader();
+        this(new FileReader(filename), delimiter, hasHeader);
     }
 
     public CSVReader(String filename,String delimiter) throws IOException {
@@ -31,134 +45,420 @@ public class CSVReader {
     }
 
     public CSVReader(String filename) throws IOException {
-        this(filename, ",(?=([^\"]*\"[^\"]*\")*[^\"]*$)", true);
+        this(filename, DEFAULT_DELIMITER, true);
+    }
+
+    /**
+     * Czyta wyłącznie wybrane kolumny - pozostałe pola nie są wyodrębniane ani zapamiętywane,
+     * a odwołanie do nich zgłasza wyjątek
+     * @param filename - nazwa pliku
+     * @param delimiter - separator pól
+     * @param columnLabels - nazwy kolumn z nagłówka, które mają być czytane
+     */
+    public CSVReader(String filename, String delimiter, String... columnLabels) throws IOException {
+        this(filename, delimiter, true);
+        project(columnLabels);
+    }
+
+    /**
+     * Czyta wyłącznie wybrane kolumny - pozostałe pola nie są wyodrębniane ani zapamiętywane,
+     * a odwołanie do nich zgłasza wyjątek
+     * @param filename - nazwa pliku
+     * @param delimiter - separator pól
+     * @param hasHeader - czy plik ma wiersz nagłówkowy
+     * @param columnIndexes - indeksy kolumn, które mają być czytane
+     */
+    public CSVReader(String filename, String delimiter, boolean hasHeader, int... columnIndexes) throws IOException {
+        this(filename, delimiter, hasHeader);
+        project(columnIndexes);
+    }
+
+    /**
+     * Czyta plik zakodowany w UTF-8 mapując go do pamięci (FileChannel.map).
+     * Wiersze są dzielone bezpośrednio na bajtach pliku, a dekodowane są tylko odczytywane pola.
+     * @param file - ścieżka do pliku
+     * @param delimiter - separator pól (wyrażenie regularne może zawierać wyłącznie znaki ASCII)
+     * @param hasHeader - czy plik ma wiersz nagłówkowy
+     */
+    public CSVReader(Path file, String delimiter, boolean hasHeader) throws IOException {
+        this(new MappedCSVInput(file), delimiter, hasHeader);
+    }
+
+    public CSVReader(Path file) throws IOException {
+        this(file, DEFAULT_DELIMITER, true);
+    }
+
+    public CSVReader(Path file, String delimiter, String... columnLabels) throws IOException {
+        this(file, delimiter, true);
+        project(columnLabels);
+    }
+
+    public CSVReader(Path file, String delimiter, boolean hasHeader, int... columnIndexes) throws IOException {
+        this(file, delimiter, hasHeader);
+        project(columnIndexes);
     }
 
     CSVReader(Reader reader, String delimiter, boolean hasHeader) throws IOException {
-        this.reader = new BufferedReader(reader);
+        this(new ReaderCSVInput(reader), delimiter, hasHeader);
+    }
+
+    CSVReader(CSVInput input, String delimiter, boolean hasHeader) throws IOException {
+        super(input, new HashMap<>(), null, new int[2 * INITIAL_FIELD_CAPACITY]);
         this.delimiter = delimiter;
         this.hasHeader = hasHeader;
+        this.columnLabels = new ArrayList<>();
+        if (delimiter.equals(DEFAULT_DELIMITER)) {
+            separator = ',';
+            quoteAware = true;
+            delimiterPattern = null;
+        }
+        else if (delimiter.length() == 1 && REGEX_METACHARACTERS.indexOf(delimiter.charAt(0)) < 0) {
+            separator = delimiter.charAt(0);
+            quoteAware = false;
+            delimiterPattern = null;
+        }
+        else {
+            separator = 0;
+            quoteAware = false;
+            delimiterPattern = Pattern.compile(delimiter);
+        }
         if(hasHeader)parseHeader();
     }
 
+    /**
+     * Tworzy reader fragmentu danych, który dzieli separator i nagłówek z source
+     */
+    private CSVReader(CSVReader source, CSVInput input) {
+        super(input, source.columnLabelsToInt, source.projection, new int[2 * INITIAL_FIELD_CAPACITY]);
+        this.delimiter = source.delimiter;
+        this.hasHeader = source.hasHeader;
+        this.separator = source.separator;
+        this.quoteAware = source.quoteAware;
+        this.delimiterPattern = source.delimiterPattern;
+        this.columnLabels = source.columnLabels;
+        this.lastProjectedColumn = source.lastProjectedColumn;
+    }
+
+    /**
+     * Dzieli nieprzeczytaną część zmapowanego pliku na niezależne readery, które mogą być czytane
+     * równolegle. Granice fragmentów wypadają na początkach wierszy, a każdy z readerów zna nagłówek.
+     * @param chunkCount - maksymalna liczba fragmentów
+     * @return readery fragmentów w kolejności występowania w pliku
+     */
+    List<CSVReader> splitIntoChunks(int chunkCount) throws IOException {
+        if (!(input instanceof MappedCSVInput mapped)) {
+            throw new UnsupportedOperationException("Only memory-mapped readers can be split into chunks");
+        }
+        long[] boundaries = mapped.chunkBoundaries(chunkCount);
+        List<CSVReader> chunks = new ArrayList<>();
+        for (int i = 0; i + 1 < boundaries.length; i++) {
+            chunks.add(new CSVReader(this, mapped.range(boundaries[i], boundaries[i + 1])));
+        }
+        return chunks;
+    }
+
     void parseHeader() throws IOException {
-        String line = reader.readLine();
-        if (line == null) {
+        if (!input.readLine()) {
             return;
         }
-        String[] header = line.split(delimiter);
+        split();
 
-        for (int i = 0; i < header.length; i++) {
-            columnLabels.add(header[i]);
-            columnLabelsToInt.put(header[i],i);
+        for (int i = 0; i < fieldCount; i++) {
+            String label = slice(i);
+            columnLabels.add(label);
+            columnLabelsToInt.put(label,i);
         }
     }
 
+    /**
+     * Przechodzi do kolejnego rekordu. Wiersz pozostaje w buforze źródła danych,
+     * a zapamiętywane są jedynie granice pól - obiekty String powstają dopiero w get()
+     * @return false, jeżeli nie ma już więcej rekordów
+     */
     boolean next() throws IOException {
-        String line = reader.readLine();
-        if (line == null) {
+        if (!input.readLine()) {
             return false;
         }
-
-        this.current = new String[columnLabels.size()];
-        String[] elements = line.split(delimiter);
-        System.arraycopy(elements, 0, this.current, 0, elements.length);
+        split();
+        recordLength = Math.max(columnLabels.size(), fieldCount);
         return true;
     }
 
-    List<String> getColumnLabels(){
-        return columnLabels;
+    /**
+     * @return niezmienna kopia bieżącego rekordu, niezależna od dalszego czytania - kopia wiersza
+     * i granice pól, bez kopiowania nagłówka
+     */
+    CSVRecord toRecord() {
+        int shift = input.lineStart();
+        int[] bounds = new int[2 * fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            if (isProjected(i)) {
+                bounds[2 * i] = fieldBounds[2 * i] - shift;
+                bounds[2 * i + 1] = fieldBounds[2 * i + 1] - shift;
+            }
+        }
+        return new CSVRecord(input.copyLine(), columnLabelsToInt, projection, bounds, fieldCount, recordLength);
     }
 
-    int getRecordLength(){
-        return current.length;
+    /**
+     * Zwraca leniwy strumień pozostałych rekordów. Rekordy są czytane dopiero podczas przetwarzania strumienia,
+     * więc pamięć nie zależy od rozmiaru pliku. Strumień readera zmapowanego z pliku można przetwarzać
+     * równolegle (parallel()) - dzieli się on wtedy na fragmenty pliku zaczynające się od początku wiersza.
+     * Po utworzeniu strumienia reader nie powinien być używany bezpośrednio.
+     * @return strumień rekordów w kolejności z pliku
+     */
+    Stream<CSVRecord> records() {
+        return StreamSupport.stream(new RecordSpliterator(this), false);
     }
 
-    boolean isMissing(int columnIndex){
-        return current[columnIndex]==null;
-    }
+    private static class RecordSpliterator implements Spliterator<CSVRecord> {
+        private static final long MIN_SPLIT_SIZE = 64 * 1024;
 
-    boolean isMissing(String columnLabel){
-        return isMissing(columnLabelsToInt.get(columnLabel));
-    }
+        private CSVReader reader;
 
-    String get(int columnIndex){
-        if(columnIndex < 0 || columnIndex >= current.length){
-            throw new InvalidIndexException("Column index out of bounds\n Actual: %d\n Max_index: %d"
-                    .formatted(columnIndex,current.length));
+        RecordSpliterator(CSVReader reader) {
+            this.reader = reader;
         }
-        if (isMissing(columnIndex)){
-            return "";
+
+        @Override
+        public boolean tryAdvance(Consumer<? super CSVRecord> action) {
+            try {
+                if (!reader.next()) {
+                    return false;
+                }
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            action.accept(reader.toRecord());
+            return true;
         }
-        return current[columnIndex];
-    }
 
-    String get(String columnLabel) {
-        Integer header_number = columnLabelsToInt.get(columnLabel);
-        if (header_number == null) {
-            throw new InvalidHeaderNameException("There is no header \"%s\" ".formatted(columnLabel));
+        @Override
+        public Spliterator<CSVRecord> trySplit() {
+            if (!(reader.input instanceof MappedCSVInput mapped) || mapped.remaining() < MIN_SPLIT_SIZE) {
+                return null;
+            }
+            List<CSVReader> halves;
+            try {
+                halves = reader.splitIntoChunks(2);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (halves.size() < 2) {
+                return null;
+            }
+            RecordSpliterator prefix = new RecordSpliterator(halves.get(0));
+            reader = halves.get(1);
+            return prefix;
         }
-        if (isMissing(columnLabel)){
-            return "";
+
+        @Override
+        public long estimateSize() {
+            if (reader.input instanceof MappedCSVInput mapped) {
+                return mapped.remaining();
+            }
+            return Long.MAX_VALUE;
         }
-        return get(header_number);
-    }
 
-    int getInt(int columnIndex){
-        return Integer.parseInt(get(columnIndex));
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
     }
 
-    int getInt(String columnLabel){
-        Integer header_number = columnLabelsToInt.get(columnLabel);
-        if (header_number == null) {
-            throw new InvalidHeaderNameException("There is no header \"%s\" ".formatted(columnLabel));
+    /**
+     * Dzieli bieżący wiersz na pola w jednym przebiegu, dając te same pola co line.split(delimiter).
+     * Dla domyślnego separatora przecinek wewnątrz cudzysłowów nie dzieli pola,
+     * a pola pozostają w postaci surowej (razem z cudzysłowami i sekwencjami "").
+     * Puste pola na końcu wiersza są pomijane, tak jak w String.split().
+     */
+    private void split() {
+        fieldCount = 0;
+        lastNonEmptyField = -1;
+        if (delimiterPattern != null) {
+            splitWithPattern();
+        }
+        else {
+            boolean inQuotes = false;
+            int lineEnd = input.lineEnd();
+            int start = input.lineStart();
+            for (int i = start; i < lineEnd; i++) {
+                char c = input.charAt(i);
+                if (c == '"' && quoteAware) {
+                    inQuotes = !inQuotes;
+                }
+                else if (c == separator && !inQuotes) {
+                    addField(start, i);
+                    start = i + 1;
+                    if (fieldCount > lastProjectedColumn) {
+                        if (hasContent(start, lineEnd)) {
+                            return;
+                        }
+                        break;
+                    }
+                }
+            }
+            if (fieldCount <= lastProjectedColumn) {
+                addField(start, lineEnd);
+            }
         }
-        return getInt(header_number);
 
+        if (fieldCount > 1) {
+            fieldCount = lastNonEmptyField + 1;
+        }
     }
 
-    double getDouble(int columnIndex){
-        return Double.parseDouble(get(columnIndex));
+    /**
+     * Sprawdza, czy za ostatnią kolumną z projekcji jest jeszcze jakieś niepuste pole.
+     * Jeżeli nie, puste pola z projekcji na końcu wiersza są pomijane, tak jak bez projekcji
+     */
+    private boolean hasContent(int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (input.charAt(i) != separator) {
+                return true;
+            }
+        }
+        return false;
     }
 
-    double getDouble(String columnLabel) {
-        Integer header_number = columnLabelsToInt.get(columnLabel);
-        if (header_number == null) {
-            throw new InvalidHeaderNameException("There is no header \"%s\" ".formatted(columnLabel));
+    private void splitWithPattern() {
+        Matcher matcher = delimiterPattern.matcher(input.line());
+        int lineStart = input.lineStart();
+        int start = 0;
+        while (matcher.find()) {
+            if (matcher.end() == 0) {
+                continue;
+            }
+            addField(lineStart + start, lineStart + matcher.start());
+            start = matcher.end();
         }
-        return getDouble(header_number);
+        addField(lineStart + start, input.lineEnd());
     }
 
-    long getLong(int columnIndex){
-        return Long.parseLong(get(columnIndex));
+    private void addField(int start, int end) {
+        if (2 * fieldCount == fieldBounds.length) {
+            fieldBounds = Arrays.copyOf(fieldBounds, fieldBounds.length * 2);
+        }
+        if (end > start) {
+            lastNonEmptyField = fieldCount;
+        }
+        if (projection == null || (fieldCount < projection.length && projection[fieldCount])) {
+            fieldBounds[2 * fieldCount] = start;
+            fieldBounds[2 * fieldCount + 1] = end;
+        }
+        fieldCount++;
     }
 
-    long getLong(String columnLabel) {
-        Integer header_number = columnLabelsToInt.get(columnLabel);
-        if (header_number == null) {
-            throw new InvalidHeaderNameException("There is no header \"%s\" ".formatted(columnLabel));
+    /**
+     * Ogranicza odczytywane kolumny - pola spoza projekcji są pomijane przy dzieleniu wiersza,
+     * a dzielenie kończy się na ostatniej kolumnie z projekcji
+     * @param columnIndexes - indeksy kolumn z projekcji
+     */
+    private void project(int... columnIndexes) {
+        if (columnIndexes.length == 0) {
+            return;
+        }
+        int last = -1;
+        for (int columnIndex : columnIndexes) {
+            if (columnIndex < 0) {
+                throw new InvalidIndexException("Column index out of bounds\n Actual: %d".formatted(columnIndex));
+            }
+            last = Math.max(last, columnIndex);
+        }
+        projection = new boolean[last + 1];
+        for (int columnIndex : columnIndexes) {
+            projection[columnIndex] = true;
         }
-        return getLong(header_number);
+        lastProjectedColumn = last;
     }
 
-    LocalTime getTime(int columnIndex, String format){
-        String time = get(columnIndex);
-        return LocalTime.parse(time, DateTimeFormatter.ofPattern(format));
+    private void project(String... columnLabels) {
+        int[] columnIndexes = new int[columnLabels.length];
+        for (int i = 0; i < columnLabels.length; i++) {
+            columnIndexes[i] = indexOf(columnLabels[i]);
+        }
+        project(columnIndexes);
     }
 
-    LocalTime getTime(String columName, String format){
-        String time = get(columName);
-        return LocalTime.parse(time, DateTimeFormatter.ofPattern(format));
+    List<String> getColumnLabels(){
+        return columnLabels;
     }
 
-    LocalDate getDate(int columnIndex, String format){
-        String date = get(columnIndex);
-        return LocalDate.parse(date, DateTimeFormatter.ofPattern(format));
+    /**
+     * Wyszukuje kolumnę po nazwie raz, zwracając uchwyt, który odczytuje pola bieżącego rekordu
+     * bezpośrednio po indeksie - bez ponownego haszowania nazwy dla każdego rekordu
+     * @param columnLabel - nazwa kolumny z nagłówka
+     * @return uchwyt kolumny związany z tym readerem
+     */
+    Column column(String columnLabel) {
+        return new Column(indexOf(columnLabel));
     }
 
-    LocalDate getDate(String columnName, String format){
-        String date = get(columnName);
-        return LocalDate.parse(date, DateTimeFormatter.ofPattern(format));
+    Column column(int columnIndex) {
+        if (columnIndex < 0 || !isProjected(columnIndex)) {
+            throw new InvalidIndexException("Column %d is not projected".formatted(columnIndex));
+        }
+        return new Column(columnIndex);
     }
 
-}
\ No newline at end of file
+    /**
+     * Uchwyt kolumny - odczytuje pole o ustalonym indeksie z bieżącego rekordu readera
+     */
+    class Column {
+        private final int index;
+
+        private Column(int index) {
+            this.index = index;
+        }
+
+        int getIndex() {
+            return index;
+        }
+
+        boolean isMissing() {
+            return CSVReader.this.isMissing(index);
+        }
+
+        String get() {
+            return CSVReader.this.get(index);
+        }
+
+        int getInt() {
+            return CSVReader.this.getInt(index);
+        }
+
+        int getIntOrDefault(int defaultValue) {
+            return CSVReader.this.getIntOrDefault(index, defaultValue);
+        }
+
+        long getLong() {
+            return CSVReader.this.getLong(index);
+        }
+
+        long getLongOrDefault(long defaultValue) {
+            return CSVReader.this.getLongOrDefault(index, defaultValue);
+        }
+
+        double getDouble() {
+            return CSVReader.this.getDouble(index);
+        }
+
+        double getDoubleOrDefault(double defaultValue) {
+            return CSVReader.this.getDoubleOrDefault(index, defaultValue);
+        }
+
+        double getDoubleOrNaN() {
+            return CSVReader.this.getDoubleOrNaN(index);
+        }
+    }
+
+    /**
+     * Zwraca formatter dla wzorca, tworząc go tylko przy pierwszym użyciu.
+     * Pamięć podręczna jest wspólna dla wszystkich readerów i przechowuje ostatnio używane wzorce
+     */
+    static DateTimeFormatter formatter(String pattern) {
+        return FORMATTERS.get(pattern, DateTimeFormatter::ofPattern);
+    }
+}
@@ -0,0 +1,28 @@
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Niezmienny rekord CSV zwracany przez CSVReader.records().
+ * Przechowuje wyłącznie kopię wiersza i granice pól, a nagłówek i projekcję współdzieli z readerem,
+ * który go utworzył - obiekty String powstają dopiero przy odczycie pola.
+ */
+class CSVRecord extends CSVFields {
+
+    CSVRecord(CSVInput line, Map<String,Integer> columnLabelsToInt, boolean[] projection,
+              int[] fieldBounds, int fieldCount, int recordLength) {
+        super(line, columnLabelsToInt, projection, fieldBounds);
+        this.fieldCount = fieldCount;
+        this.recordLength = recordLength;
+    }
+
+    @Override
+    public String toString() {
+        StringJoiner joiner = new StringJoiner(", ", "CSVRecord{", "}");
+        for (int i = 0; i < getRecordLength(); i++) {
+            if (isProjected(i)) {
+                joiner.add(get(i));
+            }
+        }
+        return joiner.toString();
+    }
+}
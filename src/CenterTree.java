@@ -0,0 +1,319 @@
+import java.util.function.IntConsumer;
+
+/**
+ * Statyczne drzewo k-d nad punktami na kuli ziemskiej (np. środkami BoundingBox).
+ * Punkty są przechowywane jako wektory jednostkowe 3D, dzięki czemu odległość euklidesowa
+ * (cięciwa) rośnie monotonicznie z odległością po powierzchni Ziemi, a przycinanie
+ * poddrzew płaszczyznami podziału jest dokładne.
+ * Węzeł dla zakresu [lo, hi) to element środkowy, lewe poddrzewo to [lo, mid), prawe [mid + 1, hi).
+ */
+class CenterTree {
+    static final double EARTH_RADIUS = 6371.0;
+
+    private final int[] ids;
+    private final double[][] coordinates;
+    private final byte[] axes;
+
+    /**
+     * @param ids - identyfikatory punktów
+     * @param latitudes - szerokości geograficzne w stopniach
+     * @param longitudes - długości geograficzne w stopniach
+     */
+    CenterTree(int[] ids, double[] latitudes, double[] longitudes) {
+        int n = ids.length;
+        this.ids = ids.clone();
+        coordinates = new double[3][n];
+        axes = new byte[n];
+        for (int i = 0; i < n; i++) {
+            double lat = Math.toRadians(latitudes[i]);
+            double lon = Math.toRadians(longitudes[i]);
+            coordinates[0][i] = Math.cos(lat) * Math.cos(lon);
+            coordinates[1][i] = Math.cos(lat) * Math.sin(lon);
+            coordinates[2][i] = Math.sin(lat);
+        }
+        build(0, n);
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    /**
+     * Zamienia odległość w km na kwadrat długości cięciwy na kuli jednostkowej
+     */
+    static double chordSquared(double km) {
+        if (km >= Math.PI * EARTH_RADIUS) {
+            return 4;
+        }
+        double halfChord = Math.sin(km / (2 * EARTH_RADIUS));
+        return 4 * halfChord * halfChord;
+    }
+
+    /**
+     * Zamienia kwadrat długości cięciwy na odległość w km (wzór haversine, jak w BoundingBox.distanceTo())
+     */
+    static double kilometers(double chordSquared) {
+        double a = chordSquared / 4;
+        return EARTH_RADIUS * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    /**
+     * Zwraca kwadrat długości cięciwy między dwoma punktami - tę samą miarę, którą porównuje drzewo
+     */
+    static double distanceSquared(double lat, double lon, double otherLat, double otherLon) {
+        double[] from = unitVector(lat, lon);
+        double[] to = unitVector(otherLat, otherLon);
+        double dx = from[0] - to[0];
+        double dy = from[1] - to[1];
+        double dz = from[2] - to[2];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private void build(int lo, int hi) {
+        if (hi - lo <= 1) {
+            return;
+        }
+        int axis = widestAxis(lo, hi);
+        int mid = (lo + hi) >>> 1;
+        select(lo, hi, mid, coordinates[axis]);
+        axes[mid] = (byte) axis;
+        build(lo, mid);
+        build(mid + 1, hi);
+    }
+
+    private int widestAxis(int lo, int hi) {
+        int widest = 0;
+        double widestSpread = -1;
+        for (int axis = 0; axis < 3; axis++) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = lo; i < hi; i++) {
+                min = Math.min(min, coordinates[axis][i]);
+                max = Math.max(max, coordinates[axis][i]);
+            }
+            if (max - min > widestSpread) {
+                widestSpread = max - min;
+                widest = axis;
+            }
+        }
+        return widest;
+    }
+
+    /**
+     * Quickselect - ustawia na pozycji k element, który byłby tam po posortowaniu [lo, hi) po values
+     */
+    private void select(int lo, int hi, int k, double[] values) {
+        int left = lo;
+        int right = hi - 1;
+        while (left < right) {
+            double pivot = values[(left + right) >>> 1];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (values[i] < pivot) {
+                    i++;
+                }
+                while (values[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i, j);
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            }
+            else if (k >= i) {
+                left = i;
+            }
+            else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int i, int j) {
+        int id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+        for (double[] axis : coordinates) {
+            double value = axis[i];
+            axis[i] = axis[j];
+            axis[j] = value;
+        }
+    }
+
+    /**
+     * Wywołuje action dla identyfikatora każdego punktu, którego kwadrat odległości (cięciwy)
+     * od punktu zapytania jest nie większy niż maxChordSquared
+     */
+    void withinChord(double lat, double lon, double maxChordSquared, IntConsumer action) {
+        double[] query = unitVector(lat, lon);
+        withinChord(0, ids.length, query, maxChordSquared, action);
+    }
+
+    private void withinChord(int lo, int hi, double[] query, double maxChordSquared, IntConsumer action) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        if (distanceSquared(mid, query) <= maxChordSquared) {
+            action.accept(ids[mid]);
+        }
+        if (hi - lo == 1) {
+            return;
+        }
+        int axis = axes[mid];
+        double difference = query[axis] - coordinates[axis][mid];
+        if (difference <= 0 || difference * difference <= maxChordSquared) {
+            withinChord(lo, mid, query, maxChordSquared, action);
+        }
+        if (difference >= 0 || difference * difference <= maxChordSquared) {
+            withinChord(mid + 1, hi, query, maxChordSquared, action);
+        }
+    }
+
+    /**
+     * Wyszukiwanie k najbliższych sąsiadów. Wyniki są zbierane we wspólnym kopcu,
+     * więc można przeszukać kolejno kilka drzew tym samym kopcem
+     */
+    void nearest(double lat, double lon, NearestHeap heap) {
+        double[] query = unitVector(lat, lon);
+        nearest(0, ids.length, query, heap);
+    }
+
+    private void nearest(int lo, int hi, double[] query, NearestHeap heap) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        heap.offer(ids[mid], distanceSquared(mid, query));
+        if (hi - lo == 1) {
+            return;
+        }
+        int axis = axes[mid];
+        double difference = query[axis] - coordinates[axis][mid];
+        if (difference <= 0) {
+            nearest(lo, mid, query, heap);
+            if (difference * difference <= heap.bound()) {
+                nearest(mid + 1, hi, query, heap);
+            }
+        }
+        else {
+            nearest(mid + 1, hi, query, heap);
+            if (difference * difference <= heap.bound()) {
+                nearest(lo, mid, query, heap);
+            }
+        }
+    }
+
+    private double distanceSquared(int index, double[] query) {
+        double dx = coordinates[0][index] - query[0];
+        double dy = coordinates[1][index] - query[1];
+        double dz = coordinates[2][index] - query[2];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static double[] unitVector(double lat, double lon) {
+        double latitude = Math.toRadians(lat);
+        double longitude = Math.toRadians(lon);
+        return new double[]{
+                Math.cos(latitude) * Math.cos(longitude),
+                Math.cos(latitude) * Math.sin(longitude),
+                Math.sin(latitude)
+        };
+    }
+
+    /**
+     * Ograniczony kopiec maksymalny k najlepszych kandydatów (najmniejszych odległości)
+     */
+    static class NearestHeap {
+        private final int[] ids;
+        private final double[] distances;
+        private int size;
+
+        NearestHeap(int k) {
+            ids = new int[k];
+            distances = new double[k];
+        }
+
+        /**
+         * @return największa odległość, która może jeszcze trafić do kopca
+         */
+        double bound() {
+            return size < ids.length ? Double.POSITIVE_INFINITY : distances[0];
+        }
+
+        void offer(int id, double distance) {
+            if (ids.length == 0) {
+                return;
+            }
+            if (size < ids.length) {
+                ids[size] = id;
+                distances[size] = distance;
+                siftUp(size++);
+            }
+            else if (distance < distances[0]) {
+                ids[0] = id;
+                distances[0] = distance;
+                siftDown(0);
+            }
+        }
+
+        /**
+         * @return identyfikatory od najbliższego do najdalszego; opróżnia kopiec
+         */
+        int[] drainAscending() {
+            int[] result = new int[size];
+            for (int i = size - 1; i >= 0; i--) {
+                result[i] = ids[0];
+                size--;
+                ids[0] = ids[size];
+                distances[0] = distances[size];
+                siftDown(0);
+            }
+            return result;
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) / 2;
+                if (distances[parent] >= distances[index]) {
+                    return;
+                }
+                swap(parent, index);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            while (true) {
+                int largest = index;
+                int left = 2 * index + 1;
+                int right = left + 1;
+                if (left < size && distances[left] > distances[largest]) {
+                    largest = left;
+                }
+                if (right < size && distances[right] > distances[largest]) {
+                    largest = right;
+                }
+                if (largest == index) {
+                    return;
+                }
+                swap(index, largest);
+                index = largest;
+            }
+        }
+
+        private void swap(int i, int j) {
+            int id = ids[i];
+            ids[i] = ids[j];
+            ids[j] = id;
+            double distance = distances[i];
+            distances[i] = distances[j];
+            distances[j] = distance;
+        }
+    }
+}
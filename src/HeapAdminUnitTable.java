@@ -0,0 +1,224 @@
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tabela jednostek przechowywana w równoległych tablicach typów prostych na stercie
+ */
+class HeapAdminUnitTable extends AdminUnitTable {
+    private final long[] ids;
+    private final long[] parentIds;
+    private final String[] names;
+    private final int[] adminLevel;
+    private final int[] population;
+    private final double[] area;
+    private final double[] density;
+    private final double[] xmin;
+    private final double[] ymin;
+    private final double[] xmax;
+    private final double[] ymax;
+    private final int[] parent;
+    private final int[] childOffsets;
+    private final int[] children;
+
+    /**
+     * Tablice nie są kopiowane - wszystkie kolumny mają długość n, childOffsets n + 1
+     */
+    HeapAdminUnitTable(long[] ids, long[] parentIds, String[] names, int[] adminLevel, int[] population,
+                       double[] area, double[] density, double[] xmin, double[] ymin, double[] xmax, double[] ymax,
+                       int[] parent, int[] childOffsets, int[] children) {
+        this.ids = ids;
+        this.parentIds = parentIds;
+        this.names = names;
+        this.adminLevel = adminLevel;
+        this.population = population;
+        this.area = area;
+        this.density = density;
+        this.xmin = xmin;
+        this.ymin = ymin;
+        this.xmax = xmax;
+        this.ymax = ymax;
+        this.parent = parent;
+        this.childOffsets = childOffsets;
+        this.children = children;
+    }
+
+    /**
+     * Tworzy tabelę z jednostek listy. Wiersze rodzica i dzieci są wyszukiwane po id w IdIndex,
+     * tak jak w AdminUnitList.read(), a rodzic i dzieci spoza listy są pomijani
+     * @param units - jednostki w kolejności wierszy
+     */
+    static HeapAdminUnitTable of(List<AdminUnit> units) {
+        AdminUnit[] rowUnits = units.toArray(new AdminUnit[0]);
+        int n = rowUnits.length;
+        long[] ids = new long[n];
+        long[] parentIds = new long[n];
+        String[] names = new String[n];
+        int[] adminLevel = new int[n];
+        int[] population = new int[n];
+        double[] area = new double[n];
+        double[] density = new double[n];
+        double[] xmin = new double[n];
+        double[] ymin = new double[n];
+        double[] xmax = new double[n];
+        double[] ymax = new double[n];
+        for (int i = 0; i < n; i++) {
+            AdminUnit unit = rowUnits[i];
+            ids[i] = unit.id;
+            parentIds[i] = unit.parentId;
+            names[i] = unit.name;
+            adminLevel[i] = unit.adminLevel;
+            population[i] = unit.population;
+            area[i] = unit.area;
+            density[i] = unit.density;
+            boolean empty = unit.bbox == null || unit.bbox.isEmpty();
+            xmin[i] = empty ? Double.NaN : unit.bbox.getXmin();
+            ymin[i] = empty ? Double.NaN : unit.bbox.getYmin();
+            xmax[i] = empty ? Double.NaN : unit.bbox.getXmax();
+            ymax[i] = empty ? Double.NaN : unit.bbox.getYmax();
+        }
+
+        RowFinder rows = new RowFinder(rowUnits, new IdIndex(ids));
+        int[] parent = new int[n];
+        int[] childOffsets = new int[n + 1];
+        int childCount = 0;
+        for (int i = 0; i < n; i++) {
+            AdminUnit unit = rowUnits[i];
+            parent[i] = rows.rowOf(unit.parent);
+            if (unit.children != null) {
+                for (AdminUnit child : unit.children) {
+                    if (rows.rowOf(child) != IdIndex.ABSENT) {
+                        childCount++;
+                    }
+                }
+            }
+            childOffsets[i + 1] = childCount;
+        }
+
+        int[] children = new int[childCount];
+        int next = 0;
+        for (AdminUnit unit : rowUnits) {
+            if (unit.children != null) {
+                for (AdminUnit child : unit.children) {
+                    int row = rows.rowOf(child);
+                    if (row != IdIndex.ABSENT) {
+                        children[next++] = row;
+                    }
+                }
+            }
+        }
+        return new HeapAdminUnitTable(ids, parentIds, names, adminLevel, population, area, density, xmin, ymin, xmax, ymax,
+                parent, childOffsets, children);
+    }
+
+    /**
+     * Wyszukuje wiersz jednostki po id i sprawdza, czy jest w nim ta sama jednostka (equals()).
+     * Gdy id się powtarza (np. jednostki utworzone bez id mają id 0), jednostka jest szukana w mapie,
+     * budowanej dopiero przy pierwszej takiej jednostce
+     */
+    private static class RowFinder {
+        private final AdminUnit[] units;
+        private final IdIndex rowsById;
+        private Map<AdminUnit, Integer> rowsByUnit;
+
+        RowFinder(AdminUnit[] units, IdIndex rowsById) {
+            this.units = units;
+            this.rowsById = rowsById;
+        }
+
+        /**
+         * @return ostatni wiersz z jednostką unit albo IdIndex.ABSENT, gdy jej nie ma (także dla null)
+         */
+        int rowOf(AdminUnit unit) {
+            if (unit == null) {
+                return IdIndex.ABSENT;
+            }
+            int row = rowsById.get(unit.id);
+            if (row == IdIndex.ABSENT || units[row].equals(unit)) {
+                return row;
+            }
+            if (rowsByUnit == null) {
+                rowsByUnit = new HashMap<>(units.length * 2);
+                for (int i = 0; i < units.length; i++) {
+                    rowsByUnit.put(units[i], i);
+                }
+            }
+            return rowsByUnit.getOrDefault(unit, IdIndex.ABSENT);
+        }
+    }
+
+    @Override
+    int size() {
+        return names.length;
+    }
+
+    @Override
+    long id(int row) {
+        return ids[row];
+    }
+
+    @Override
+    long parentId(int row) {
+        return parentIds[row];
+    }
+
+    @Override
+    String name(int row) {
+        return names[row];
+    }
+
+    @Override
+    int adminLevel(int row) {
+        return adminLevel[row];
+    }
+
+    @Override
+    int population(int row) {
+        return population[row];
+    }
+
+    @Override
+    double area(int row) {
+        return area[row];
+    }
+
+    @Override
+    double density(int row) {
+        return density[row];
+    }
+
+    @Override
+    double xmin(int row) {
+        return xmin[row];
+    }
+
+    @Override
+    double ymin(int row) {
+        return ymin[row];
+    }
+
+    @Override
+    double xmax(int row) {
+        return xmax[row];
+    }
+
+    @Override
+    double ymax(int row) {
+        return ymax[row];
+    }
+
+    @Override
+    int parent(int row) {
+        return parent[row];
+    }
+
+    @Override
+    int childOffset(int row) {
+        return childOffsets[row];
+    }
+
+    @Override
+    int child(int index) {
+        return children[index];
+    }
+}
@@ -0,0 +1,79 @@
+import java.util.Arrays;
+
+/**
+ * Odwzorowanie identyfikatorów jednostek (long) na numery wierszy (int) bez obiektów Long i wpisów mapy.
+ * Gdy identyfikatory tworzą zwarty przedział, wiersze są zapisane w tablicy indeksowanej identyfikatorem,
+ * w przeciwnym razie - w tablicy mieszającej z adresowaniem otwartym.
+ * Dla powtórzonego identyfikatora zapamiętywany jest ostatni wiersz (tak jak przy Map.put())
+ */
+class IdIndex {
+    static final int ABSENT = -1;
+    /**
+     * Maksymalny stosunek rozpiętości identyfikatorów do ich liczby, przy którym używana jest tablica
+     */
+    private static final int MAX_DENSE_SPREAD = 4;
+
+    private final long min;
+    private final long[] keys;
+    private final int[] rows;
+    private final int shift;
+
+    /**
+     * @param ids - identyfikator dla każdego wiersza
+     */
+    IdIndex(long[] ids) {
+        long lo = Long.MAX_VALUE;
+        long hi = Long.MIN_VALUE;
+        for (long id : ids) {
+            lo = Math.min(lo, id);
+            hi = Math.max(hi, id);
+        }
+        long spread = hi - lo;
+        if (ids.length > 0 && spread >= 0 && spread < (long) MAX_DENSE_SPREAD * ids.length + 16) {
+            min = lo;
+            keys = null;
+            shift = 0;
+            rows = new int[(int) spread + 1];
+            Arrays.fill(rows, ABSENT);
+            for (int row = 0; row < ids.length; row++) {
+                rows[(int) (ids[row] - min)] = row;
+            }
+        }
+        else {
+            int capacity = Integer.highestOneBit(Math.max(ids.length, 1) * 2 - 1) * 2;
+            min = 0;
+            keys = new long[capacity];
+            shift = Long.SIZE - Integer.numberOfTrailingZeros(capacity);
+            rows = new int[capacity];
+            Arrays.fill(rows, ABSENT);
+            for (int row = 0; row < ids.length; row++) {
+                int slot = slot(ids[row]);
+                keys[slot] = ids[row];
+                rows[slot] = row;
+            }
+        }
+    }
+
+    /**
+     * Zwraca wiersz jednostki o identyfikatorze id albo ABSENT
+     */
+    int get(long id) {
+        if (keys == null) {
+            long index = id - min;
+            return index >= 0 && index < rows.length ? rows[(int) index] : ABSENT;
+        }
+        return rows[slot(id)];
+    }
+
+    /**
+     * Zwraca miejsce w tablicy mieszającej zajęte przez id albo puste miejsce, w którym powinien się znaleźć
+     */
+    private int slot(long id) {
+        int mask = keys.length - 1;
+        int slot = (int) ((id * 0x9E3779B97F4A7C15L) >>> shift);
+        while (rows[slot] != ABSENT && keys[slot] != id) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,39 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Pamięć podręczna o ograniczonym rozmiarze, usuwająca najdawniej używany wpis (LRU).
+ * Może być współdzielona przez wiele wątków
+ * @param <K> - typ klucza
+ * @param <V> - typ wartości
+ */
+class LruCache<K, V> {
+    private final Map<K, V> entries;
+
+    /**
+     * @param capacity - maksymalna liczba wpisów
+     */
+    LruCache(int capacity) {
+        entries = new LinkedHashMap<>(capacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Zwraca wartość dla klucza, tworząc ją przez factory tylko wtedy, gdy nie ma jej w pamięci podręcznej
+     * @param key - klucz
+     * @param factory - tworzy wartość dla klucza
+     */
+    synchronized V get(K key, Function<? super K, ? extends V> factory) {
+        V value = entries.get(key);
+        if (value == null) {
+            value = factory.apply(key);
+            entries.put(key, value);
+        }
+        return value;
+    }
+}
@@ -1,5 +1,8 @@
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Locale;
 import java.util.function.Predicate;
 
@@ -30,12 +33,37 @@ public class Main {
         }
     }
 
+    /**
+     * Czyta jednostki z admin-units.snapshot, jeżeli został zapisany (writePlacesSnapshot()) po ostatniej zmianie
+     * admin-units.csv i ma obsługiwany format. W przeciwnym razie parsuje admin-units.csv
+     */
     static AdminUnitList readPlaces() throws IOException {
+        Path csv = Path.of("admin-units.csv");
+        Path snapshot = Path.of("admin-units.snapshot");
+        if (Files.exists(snapshot) && Files.getLastModifiedTime(snapshot).compareTo(Files.getLastModifiedTime(csv)) >= 0) {
+            AdminUnitList adminUnitList = new AdminUnitList();
+            try {
+                adminUnitList.readSnapshot(snapshot.toString());
+                return adminUnitList;
+            }
+            catch (IOException e) {
+                System.err.println("Skipping %s: %s".formatted(snapshot, e.getMessage()));
+            }
+        }
         AdminUnitList adminUnitList = new AdminUnitList();
-        adminUnitList.read("admin-units.csv");
+        adminUnitList.read(csv.toString());
         return adminUnitList;
     }
 
+    /**
+     * Zapisuje admin-units.snapshot, z którego readPlaces() może czytać bez parsowania CSV
+     */
+    static void writePlacesSnapshot() throws IOException {
+        AdminUnitList adminUnitList = new AdminUnitList();
+        adminUnitList.read("admin-units.csv");
+        adminUnitList.writeSnapshot("admin-units.snapshot");
+    }
+
     static void testAdminUnitList() throws IOException {
         AdminUnitList adminUnitList = readPlaces();
         AdminUnitList withPattern = adminUnitList.selectByName("sucha", false);
@@ -46,26 +74,26 @@ public class Main {
     static void readStartsWithZOrderByArea() throws IOException {
         AdminUnitList list = readPlaces();
         var out = System.out;
-        list.filter(a->a.name.startsWith("Ż")).sortInPlaceByArea().list(out);
+        list.selectByNamePrefix("Ż").sortInPlaceByArea().list(out);
         System.out.println(out);
     }
 
     static void readStartsWithKOrderByArea() throws IOException {
         AdminUnitList list = readPlaces();
         var out = System.out;
-        list.filter(a->a.name.startsWith("K")).sortInPlaceByName().list(out);
+        list.selectByNamePrefix("K").sortInPlaceByName().list(out);
     }
 
     static void districtsWithParentAsMalopolskie() throws IOException {
         AdminUnitList list = readPlaces();
         var out = System.out;
-        list.filter(a->(a.adminLevel == 6 && a.parent.name.equals("województwo małopolskie"))).list(out);
+        list.selectByLevel(6).filter(a->a.parent.name.equals("województwo małopolskie")).list(out);
     }
 
     static void exmapleWithAndOr() throws IOException {
         AdminUnitList list = readPlaces();
-        Predicate<AdminUnit> hasLargePopulation = unit -> unit.population < 500_000;
-        Predicate<AdminUnit> startsWithW = unit -> unit.name.startsWith("W");
+        AdminUnitPredicate hasLargePopulation = AdminUnitPredicate.populationBetween(Integer.MIN_VALUE, 499_999);
+        AdminUnitPredicate startsWithW = AdminUnitPredicate.nameStartsWith("W");
         Predicate<AdminUnit> endsWithK = unit -> unit.name.endsWith("k");
 
         Predicate<AdminUnit> complexCriteria = hasLargePopulation.and(startsWithW.or(endsWithK));
@@ -74,14 +102,23 @@ public class Main {
         list.filter(complexCriteria).list(out);
     }
 
+    /**
+     * Zwraca pierwszą jednostkę o nazwie name albo null (z komunikatem na System.err), gdy jej nie ma
+     */
+    static AdminUnit findByName(AdminUnitList list, String name) {
+        List<AdminUnit> found = list.selectByExactName(name).units;
+        if (found.isEmpty()) {
+            System.err.printf("No unit named %s%n", name);
+            return null;
+        }
+        return found.get(0);
+    }
+
     static void testGettingNeigbours() throws IOException {
         AdminUnitList adminUnitList = readPlaces();
-        AdminUnit place = null;
-        for(AdminUnit unit: adminUnitList.units){
-            if (unit.name.equals("Kraków")){
-                place = unit;
-                break;
-            }
+        AdminUnit place = findByName(adminUnitList, "Kraków");
+        if (place == null) {
+            return;
         }
         System.out.println(place);
 
@@ -97,12 +134,9 @@ public class Main {
 
     static void testGettingNeigboursHierarchical() throws IOException {
         AdminUnitList adminUnitList = readPlaces();
-        AdminUnit place = null;
-        for(AdminUnit unit: adminUnitList.units){
-            if (unit.name.equals("Kraków")){
-                place = unit;
-                break;
-            }
+        AdminUnit place = findByName(adminUnitList, "Kraków");
+        if (place == null) {
+            return;
         }
         System.out.println(place);
 
@@ -0,0 +1,265 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Czyta plik UTF-8 przez FileChannel.map() - wiersze są dzielone bezpośrednio na bajtach
+ * zmapowanego bufora, a dekodowane są tylko pola, o które poproszono.
+ * Pliki większe niż jedno okno mapowania są mapowane kolejnymi oknami,
+ * zaczynającymi się zawsze od początku bieżącego wiersza.
+ */
+class MappedCSVInput extends CSVInput {
+    static final int MAX_WINDOW_SIZE = Integer.MAX_VALUE;
+    private static final int SCAN_BUFFER_SIZE = 8192;
+
+    private final Path path;
+    private final long end;
+    private final int windowSize;
+    private ByteBuffer window;
+    private long windowOffset;
+    private int windowLength;
+    private int position;
+    private int lineStart;
+    private int lineEnd;
+    /**
+     * Bufor dekodowania pól zmapowanego pliku - kopia wiersza (copyLine()) dekoduje bezpośrednio ze swojej tablicy
+     */
+    private byte[] decodeBuffer;
+
+    MappedCSVInput(Path path) throws IOException {
+        this(path, 0, -1, MAX_WINDOW_SIZE);
+    }
+
+    /**
+     * @param path - ścieżka do pliku
+     * @param start - bajt, od którego zaczyna się czytanie (początek wiersza)
+     * @param end - bajt, na którym kończy się czytanie, lub -1 dla końca pliku
+     * @param windowSize - maksymalny rozmiar jednego okna mapowania
+     */
+    MappedCSVInput(Path path, long start, long end, int windowSize) throws IOException {
+        this.path = path;
+        this.windowSize = windowSize;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            this.end = end < 0 ? channel.size() : Math.min(end, channel.size());
+            map(channel, start);
+        }
+    }
+
+    private MappedCSVInput(byte[] line) {
+        this.path = null;
+        this.end = line.length;
+        this.windowSize = line.length;
+        this.window = ByteBuffer.wrap(line);
+        this.windowLength = line.length;
+        this.position = line.length;
+        this.lineEnd = line.length;
+    }
+
+    private void map(FileChannel channel, long offset) throws IOException {
+        windowOffset = offset;
+        windowLength = (int) Math.min(windowSize, end - offset);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, offset, windowLength);
+        position = 0;
+    }
+
+    /**
+     * Przesuwa okno mapowania tak, aby zaczynało się od pozycji position
+     * @return false, jeżeli za oknem nie ma już danych
+     */
+    private boolean remap() throws IOException {
+        long offset = windowOffset + position;
+        if (windowOffset + windowLength >= end) {
+            return false;
+        }
+        if (position == 0) {
+            throw new IOException("Line longer than %d bytes at offset %d".formatted(windowSize, offset));
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            map(channel, offset);
+        }
+        return true;
+    }
+
+    @Override
+    boolean readLine() throws IOException {
+        int scan = position;
+        while (true) {
+            for (; scan < windowLength; scan++) {
+                byte b = window.get(scan);
+                if (b == '\n' || b == '\r') {
+                    if (b == '\r' && scan + 1 == windowLength && windowOffset + windowLength < end) {
+                        break;
+                    }
+                    lineStart = position;
+                    lineEnd = scan;
+                    if (b == '\r' && scan + 1 < windowLength && window.get(scan + 1) == '\n') {
+                        scan++;
+                    }
+                    position = scan + 1;
+                    return true;
+                }
+            }
+            int scanned = scan - position;
+            if (!remap()) {
+                if (position == windowLength) {
+                    return false;
+                }
+                lineStart = position;
+                lineEnd = windowLength;
+                position = windowLength;
+                return true;
+            }
+            scan = scanned;
+        }
+    }
+
+    /**
+     * Dzieli nieprzeczytaną część pliku na co najwyżej chunkCount zakresów o zbliżonej wielkości.
+     * Granice wypadają zawsze na początku wiersza - CSVReader kończy rekord na każdym znaku końca linii,
+     * więc zakresy czytane niezależnie dają dokładnie te same rekordy co czytanie sekwencyjne.
+     * @return posortowane pozycje granic; pierwsza to bieżąca pozycja, ostatnia to koniec danych
+     */
+    long[] chunkBoundaries(int chunkCount) throws IOException {
+        long start = windowOffset + position;
+        long[] boundaries = new long[chunkCount + 1];
+        int count = 0;
+        boundaries[count++] = start;
+        long step = (end - start) / chunkCount;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            for (int i = 1; i < chunkCount && step > 0; i++) {
+                long boundary = nextLineStart(channel, Math.max(start + i * step, boundaries[count - 1]));
+                if (boundary >= end) {
+                    break;
+                }
+                if (boundary > boundaries[count - 1]) {
+                    boundaries[count++] = boundary;
+                }
+            }
+        }
+        if (boundaries[count - 1] < end || count == 1) {
+            boundaries[count++] = end;
+        }
+        return Arrays.copyOf(boundaries, count);
+    }
+
+    /**
+     * @return pozycja pierwszego bajtu po najbliższym (od from) znaku końca linii lub koniec danych
+     */
+    private long nextLineStart(FileChannel channel, long from) throws IOException {
+        ByteBuffer scanBuffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        boolean afterCarriageReturn = false;
+        long offset = from;
+        while (offset < end) {
+            scanBuffer.clear();
+            scanBuffer.limit((int) Math.min(SCAN_BUFFER_SIZE, end - offset));
+            int read = channel.read(scanBuffer, offset);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = scanBuffer.get(i);
+                if (afterCarriageReturn) {
+                    return b == '\n' ? offset + i + 1 : offset + i;
+                }
+                if (b == '\n') {
+                    return offset + i + 1;
+                }
+                afterCarriageReturn = b == '\r';
+            }
+            offset += read;
+        }
+        return end;
+    }
+
+    /**
+     * @return liczba bajtów, które pozostały do przeczytania
+     */
+    long remaining() {
+        return end - (windowOffset + position);
+    }
+
+    /**
+     * @return nowe źródło czytające zakres [start, end) tego samego pliku
+     */
+    MappedCSVInput range(long start, long end) throws IOException {
+        return new MappedCSVInput(path, start, end, windowSize);
+    }
+
+    @Override
+    int lineStart() {
+        return lineStart;
+    }
+
+    @Override
+    int lineEnd() {
+        return lineEnd;
+    }
+
+    @Override
+    char charAt(int index) {
+        return (char) (window.get(index) & 0xff);
+    }
+
+    @Override
+    String substring(int start, int end) {
+        int length = end - start;
+        if (window.hasArray()) {
+            return new String(window.array(), start, length, StandardCharsets.UTF_8);
+        }
+        if (decodeBuffer == null || decodeBuffer.length < length) {
+            decodeBuffer = new byte[Math.max(length, decodeBuffer == null ? 64 : decodeBuffer.length * 2)];
+        }
+        window.get(start, decodeBuffer, 0, length);
+        return new String(decodeBuffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Bajty wiersza są widoczne jako znaki ISO-8859-1, dlatego separator
+     * będący wyrażeniem regularnym musi składać się ze znaków ASCII
+     */
+    @Override
+    CharSequence line() {
+        return new ByteLine(lineStart, lineEnd);
+    }
+
+    @Override
+    CSVInput copyLine() {
+        byte[] line = new byte[lineEnd - lineStart];
+        window.get(lineStart, line);
+        return new MappedCSVInput(line);
+    }
+
+    private class ByteLine implements CharSequence {
+        private final int start;
+        private final int end;
+
+        ByteLine(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return MappedCSVInput.this.charAt(start + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return new ByteLine(start + from, start + to);
+        }
+
+        @Override
+        public String toString() {
+            return substring(start, end);
+        }
+    }
+}
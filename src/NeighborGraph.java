@@ -0,0 +1,209 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Graf sąsiedztwa wszystkich jednostek listy w formacie CSR: sąsiedzi jednostki na pozycji i
+ * to pozycje neighbors[offsets[i]] .. neighbors[offsets[i + 1] - 1], rosnąco.
+ * Sąsiedztwo jest zdefiniowane tak jak w AdminUnitList.getNeighbors().
+ */
+class NeighborGraph {
+    private static final int STRIPE_SIZE = 1024;
+
+    private final List<AdminUnit> units;
+    private final int[] offsets;
+    private final int[] neighbors;
+
+    private NeighborGraph(List<AdminUnit> units, int[] offsets, int[] neighbors) {
+        this.units = units;
+        this.offsets = offsets;
+        this.neighbors = neighbors;
+    }
+
+    /**
+     * Wyznacza wszystkie pary sąsiadów jednym przebiegiem miotły (sweep-line) po posortowanych
+     * współrzędnych xmin, osobno dla każdego admin_level. Poziomy i pasy posortowanych prostokątów
+     * są przetwarzane równolegle.
+     * Dla miejscowości (admin_level 8) para musi dodatkowo spełniać distanceTo() <= maxdistance,
+     * dlatego miejscowości z pustym BoundingBox nie mają sąsiadów.
+     * @param units - jednostki, graf opisuje ich pozycje na liście
+     * @param table - kolumny jednostek, wiersz i odpowiada units.get(i)
+     * @param maxdistance - promień dla miejscowości
+     */
+    static NeighborGraph build(List<AdminUnit> units, AdminUnitTable table, double maxdistance) {
+        Map<Integer, List<Integer>> indexedByLevel = new HashMap<>();
+        Map<Integer, List<Integer>> emptyByLevel = new HashMap<>();
+        for (int i = 0; i < table.size(); i++) {
+            Map<Integer, List<Integer>> target = Double.isNaN(table.xmin(i)) ? emptyByLevel : indexedByLevel;
+            target.computeIfAbsent(table.adminLevel(i), level -> new ArrayList<>()).add(i);
+        }
+
+        List<Sweep> sweeps = new ArrayList<>();
+        List<Runnable> tasks = new ArrayList<>();
+        for (Map.Entry<Integer, List<Integer>> entry : indexedByLevel.entrySet()) {
+            Sweep sweep = new Sweep(table, entry.getValue(), entry.getKey() == 8, maxdistance);
+            sweeps.add(sweep);
+            for (int start = 0; start < sweep.size(); start += STRIPE_SIZE) {
+                int stripeStart = start;
+                tasks.add(() -> sweep.run(stripeStart, Math.min(stripeStart + STRIPE_SIZE, sweep.size())));
+            }
+        }
+        IntStream.range(0, tasks.size()).parallel().forEach(task -> tasks.get(task).run());
+
+        List<long[]> pairs = new ArrayList<>();
+        for (Sweep sweep : sweeps) {
+            pairs.addAll(sweep.pairs);
+        }
+        for (Map.Entry<Integer, List<Integer>> entry : emptyByLevel.entrySet()) {
+            List<Integer> indexed = indexedByLevel.get(entry.getKey());
+            if (entry.getKey() == 8 || indexed == null) {
+                continue;
+            }
+            // BoundingBox.intersects() zwraca true dla pustego i dowolnego niepustego prostokąta
+            for (int empty : entry.getValue()) {
+                long[] emptyPairs = new long[indexed.size()];
+                for (int i = 0; i < indexed.size(); i++) {
+                    emptyPairs[i] = pack(empty, indexed.get(i));
+                }
+                pairs.add(emptyPairs);
+            }
+        }
+        return fromPairs(units, pairs);
+    }
+
+    /**
+     * Przebieg miotły dla jednego poziomu - prostokąty posortowane po xmin
+     */
+    private static class Sweep {
+        final int[] positions;
+        final double[] xmin;
+        final double[] ymin;
+        final double[] xmax;
+        final double[] ymax;
+        final BoundingBox[] boxes;
+        final boolean checkDistance;
+        final double maxdistance;
+        /**
+         * Próg isWithin() dla maxdistance - wspólny dla wszystkich par
+         */
+        final double threshold;
+        final List<long[]> pairs = new ArrayList<>();
+
+        Sweep(AdminUnitTable table, List<Integer> levelPositions, boolean checkDistance, double maxdistance) {
+            int n = levelPositions.size();
+            Integer[] order = levelPositions.toArray(new Integer[0]);
+            Arrays.sort(order, Comparator.comparingDouble(table::xmin));
+            positions = new int[n];
+            xmin = new double[n];
+            ymin = new double[n];
+            xmax = new double[n];
+            ymax = new double[n];
+            boxes = new BoundingBox[n];
+            for (int i = 0; i < n; i++) {
+                positions[i] = order[i];
+                xmin[i] = table.xmin(order[i]);
+                ymin[i] = table.ymin(order[i]);
+                xmax[i] = table.xmax(order[i]);
+                ymax[i] = table.ymax(order[i]);
+                boxes[i] = checkDistance ? new BoundingBox(xmin[i], ymin[i], xmax[i], ymax[i]) : null;
+            }
+            this.checkDistance = checkDistance;
+            this.maxdistance = maxdistance;
+            threshold = BoundingBox.chordThreshold(maxdistance);
+        }
+
+        int size() {
+            return positions.length;
+        }
+
+        /**
+         * Znajduje pary (i, j), i < j, dla i z zakresu [start, end) - j może wychodzić poza zakres
+         */
+        void run(int start, int end) {
+            long[] found = new long[64];
+            int count = 0;
+            for (int i = start; i < end; i++) {
+                for (int j = i + 1; j < positions.length && !(xmin[j] > xmax[i]); j++) {
+                    if (xmin[i] > xmax[j] || ymin[i] > ymax[j] || ymin[j] > ymax[i]) {
+                        continue;
+                    }
+                    if (checkDistance && !boxes[i].isWithin(boxes[j], maxdistance, threshold)) {
+                        continue;
+                    }
+                    if (count == found.length) {
+                        found = Arrays.copyOf(found, count * 2);
+                    }
+                    found[count++] = pack(positions[i], positions[j]);
+                }
+            }
+            long[] result = Arrays.copyOf(found, count);
+            synchronized (pairs) {
+                pairs.add(result);
+            }
+        }
+    }
+
+    private static long pack(int first, int second) {
+        return ((long) first << 32) | (second & 0xffffffffL);
+    }
+
+    private static NeighborGraph fromPairs(List<AdminUnit> units, List<long[]> pairs) {
+        int n = units.size();
+        int[] offsets = new int[n + 1];
+        for (long[] chunk : pairs) {
+            for (long pair : chunk) {
+                offsets[(int) (pair >>> 32) + 1]++;
+                offsets[(int) pair + 1]++;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] neighbors = new int[offsets[n]];
+        int[] fill = Arrays.copyOf(offsets, n);
+        for (long[] chunk : pairs) {
+            for (long pair : chunk) {
+                int first = (int) (pair >>> 32);
+                int second = (int) pair;
+                neighbors[fill[first]++] = second;
+                neighbors[fill[second]++] = first;
+            }
+        }
+        IntStream.range(0, n).parallel().forEach(i -> Arrays.sort(neighbors, offsets[i], offsets[i + 1]));
+        return new NeighborGraph(units, offsets, neighbors);
+    }
+
+    int[] getOffsets() {
+        return offsets;
+    }
+
+    int[] getNeighbors() {
+        return neighbors;
+    }
+
+    int degree(int position) {
+        return offsets[position + 1] - offsets[position];
+    }
+
+    /**
+     * @return pozycje sąsiadów jednostki z pozycji position, rosnąco
+     */
+    int[] neighborPositions(int position) {
+        return Arrays.copyOfRange(neighbors, offsets[position], offsets[position + 1]);
+    }
+
+    /**
+     * @return sąsiedzi jednostki z pozycji position w kolejności listy
+     */
+    AdminUnitList getNeighbors(int position) {
+        AdminUnitList result = new AdminUnitList();
+        for (int i = offsets[position]; i < offsets[position + 1]; i++) {
+            result.units.add(units.get(neighbors[i]));
+        }
+        return result;
+    }
+}
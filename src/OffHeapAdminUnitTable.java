@@ -0,0 +1,141 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tabela jednostek czytana bezpośrednio z bufora w formacie AdminUnitSnapshot - bufora poza stertą
+ * (ByteBuffer.allocateDirect) albo pliku mapowanego do pamięci. Na stercie nie ma kopii kolumn,
+ * a nazwy są przechowywane w jednej puli bajtów UTF-8 i dekodowane przy odczycie.
+ * Dane mieszczą się w jednym buforze adresowanym typem int, więc zrzut może mieć najwyżej 2 GB
+ * (około 20 milionów jednostek) - copyOf() i AdminUnitSnapshot.mapTable() zgłaszają IOException dla większego.
+ */
+class OffHeapAdminUnitTable extends AdminUnitTable {
+    private final ByteBuffer buffer;
+    private final int size;
+    private final int idStart;
+    private final int parentIdStart;
+    private final int adminLevelStart;
+    private final int populationStart;
+    private final int areaStart;
+    private final int densityStart;
+    private final int xminStart;
+    private final int yminStart;
+    private final int xmaxStart;
+    private final int ymaxStart;
+    private final int parentStart;
+    private final int childOffsetsStart;
+    private final int childrenStart;
+    private final int nameOffsetsStart;
+    private final int namesStart;
+
+    /**
+     * @param buffer - dane w formacie AdminUnitSnapshot od pozycji 0, z poprawnym nagłówkiem
+     */
+    OffHeapAdminUnitTable(ByteBuffer buffer) {
+        this.buffer = buffer.duplicate();
+        size = buffer.getInt(AdminUnitSnapshot.HEADER_SIZE - Integer.BYTES);
+        idStart = AdminUnitSnapshot.HEADER_SIZE;
+        parentIdStart = idStart + size * Long.BYTES;
+        adminLevelStart = parentIdStart + size * Long.BYTES;
+        populationStart = adminLevelStart + size * Integer.BYTES;
+        areaStart = populationStart + size * Integer.BYTES;
+        densityStart = areaStart + size * Double.BYTES;
+        xminStart = densityStart + size * Double.BYTES;
+        yminStart = xminStart + size * Double.BYTES;
+        xmaxStart = yminStart + size * Double.BYTES;
+        ymaxStart = xmaxStart + size * Double.BYTES;
+        parentStart = ymaxStart + size * Double.BYTES;
+        childOffsetsStart = parentStart + size * Integer.BYTES;
+        childrenStart = childOffsetsStart + (size + 1) * Integer.BYTES;
+        nameOffsetsStart = childrenStart + childOffset(size) * Integer.BYTES;
+        namesStart = nameOffsetsStart + (size + 1) * Integer.BYTES;
+    }
+
+    /**
+     * Kopiuje tabelę do bufora poza stertą
+     * @param table - tabela źródłowa
+     * @return tabela, której kolumny i nazwy nie zajmują miejsca na stercie
+     */
+    static OffHeapAdminUnitTable copyOf(AdminUnitTable table) throws IOException {
+        return new OffHeapAdminUnitTable(AdminUnitSnapshot.encode(table, ByteBuffer::allocateDirect));
+    }
+
+    @Override
+    int size() {
+        return size;
+    }
+
+    @Override
+    long id(int row) {
+        return buffer.getLong(idStart + row * Long.BYTES);
+    }
+
+    @Override
+    long parentId(int row) {
+        return buffer.getLong(parentIdStart + row * Long.BYTES);
+    }
+
+    @Override
+    String name(int row) {
+        int start = buffer.getInt(nameOffsetsStart + row * Integer.BYTES);
+        int end = buffer.getInt(nameOffsetsStart + (row + 1) * Integer.BYTES);
+        byte[] bytes = new byte[end - start];
+        buffer.get(namesStart + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    int adminLevel(int row) {
+        return buffer.getInt(adminLevelStart + row * Integer.BYTES);
+    }
+
+    @Override
+    int population(int row) {
+        return buffer.getInt(populationStart + row * Integer.BYTES);
+    }
+
+    @Override
+    double area(int row) {
+        return buffer.getDouble(areaStart + row * Double.BYTES);
+    }
+
+    @Override
+    double density(int row) {
+        return buffer.getDouble(densityStart + row * Double.BYTES);
+    }
+
+    @Override
+    double xmin(int row) {
+        return buffer.getDouble(xminStart + row * Double.BYTES);
+    }
+
+    @Override
+    double ymin(int row) {
+        return buffer.getDouble(yminStart + row * Double.BYTES);
+    }
+
+    @Override
+    double xmax(int row) {
+        return buffer.getDouble(xmaxStart + row * Double.BYTES);
+    }
+
+    @Override
+    double ymax(int row) {
+        return buffer.getDouble(ymaxStart + row * Double.BYTES);
+    }
+
+    @Override
+    int parent(int row) {
+        return buffer.getInt(parentStart + row * Integer.BYTES);
+    }
+
+    @Override
+    int childOffset(int row) {
+        return buffer.getInt(childOffsetsStart + row * Integer.BYTES);
+    }
+
+    @Override
+    int child(int index) {
+        return buffer.getInt(childrenStart + index * Integer.BYTES);
+    }
+}
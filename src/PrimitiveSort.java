@@ -0,0 +1,170 @@
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Stabilne sortowania wierszy według kluczy typów prostych, bez komparatorów i obiektów pośrednich.
+ * Każda metoda zwraca permutację order, w której order[i] to numer wiersza na pozycji i po posortowaniu;
+ * wiersze o równych kluczach zachowują kolejność wejściową - tak jak List.sort()
+ */
+class PrimitiveSort {
+    private static final int RADIX_BITS = 8;
+    private static final int RADIX = 1 << RADIX_BITS;
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+
+    private interface RowComparator {
+        int compare(int a, int b);
+    }
+
+    private PrimitiveSort() {
+    }
+
+    /**
+     * Zamienia double na long o tej samej kolejności co Double.compare() (-0.0 przed 0.0, NaN na końcu)
+     */
+    static long sortableKey(double value) {
+        long bits = Double.doubleToLongBits(value);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    /**
+     * Sortuje wiersze rosnąco według kluczy (porównywanych jak Long.compare()) sortowaniem pozycyjnym LSD,
+     * pomijając bajty, które są takie same we wszystkich kluczach
+     * @param keys - klucz dla każdego wiersza
+     * @return permutacja wierszy
+     */
+    static int[] order(long[] keys) {
+        int n = keys.length;
+        long[] sortedKeys = new long[n];
+        int[] rows = new int[n];
+        for (int i = 0; i < n; i++) {
+            sortedKeys[i] = keys[i] ^ Long.MIN_VALUE;
+            rows[i] = i;
+        }
+        long[] keyBuffer = new long[n];
+        int[] rowBuffer = new int[n];
+        int[] counts = new int[RADIX];
+        for (int shift = 0; shift < Long.SIZE; shift += RADIX_BITS) {
+            Arrays.fill(counts, 0);
+            for (long key : sortedKeys) {
+                counts[(int) (key >>> shift) & (RADIX - 1)]++;
+            }
+            if (n == 0 || counts[(int) (sortedKeys[0] >>> shift) & (RADIX - 1)] == n) {
+                continue;
+            }
+            for (int digit = 0, start = 0; digit < RADIX; digit++) {
+                int count = counts[digit];
+                counts[digit] = start;
+                start += count;
+            }
+            for (int i = 0; i < n; i++) {
+                int target = counts[(int) (sortedKeys[i] >>> shift) & (RADIX - 1)]++;
+                keyBuffer[target] = sortedKeys[i];
+                rowBuffer[target] = rows[i];
+            }
+            long[] keySwap = sortedKeys;
+            sortedKeys = keyBuffer;
+            keyBuffer = keySwap;
+            int[] rowSwap = rows;
+            rows = rowBuffer;
+            rowBuffer = rowSwap;
+        }
+        return rows;
+    }
+
+    /**
+     * Sortuje wiersze według kluczy tak jak String.compareTo(). Pierwsze cztery znaki każdego klucza są
+     * zapisane w jednym long, więc większość porównań nie odwołuje się do napisów
+     * @param keys - klucz dla każdego wiersza
+     * @return permutacja wierszy
+     */
+    static int[] order(String[] keys) {
+        long[] prefixes = new long[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            String key = keys[i];
+            long prefix = 0;
+            for (int j = 0; j < 4; j++) {
+                prefix = (prefix << Character.SIZE) | (j < key.length() ? key.charAt(j) : 0);
+            }
+            prefixes[i] = prefix;
+        }
+        return mergeSort(keys.length, (a, b) -> {
+            int result = Long.compareUnsigned(prefixes[a], prefixes[b]);
+            return result != 0 ? result : keys[a].compareTo(keys[b]);
+        });
+    }
+
+    /**
+     * Sortuje wiersze według kluczy w kolejności collatora - klucze porównania są wyznaczane raz dla wiersza
+     * @param keys - klucz dla każdego wiersza
+     * @param collator - porządek napisów (np. Collator.getInstance(new Locale("pl")))
+     * @return permutacja wierszy
+     */
+    static int[] order(String[] keys, Collator collator) {
+        CollationKey[] collationKeys = new CollationKey[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            collationKeys[i] = collator.getCollationKey(keys[i]);
+        }
+        return mergeSort(keys.length, (a, b) -> collationKeys[a].compareTo(collationKeys[b]));
+    }
+
+    /**
+     * Sortuje wiersze według komparatora - tak jak List.sort(), ale bez przestawiania samych obiektów
+     * @param keys - klucz dla każdego wiersza
+     * @param comparator - porządek kluczy
+     * @return permutacja wierszy
+     */
+    static <T> int[] order(T[] keys, Comparator<? super T> comparator) {
+        return mergeSort(keys.length, (a, b) -> comparator.compare(keys[a], keys[b]));
+    }
+
+    /**
+     * Stabilne sortowanie przez scalanie numerów wierszy 0..n-1 - krótkie serie są sortowane przez wstawianie
+     */
+    private static int[] mergeSort(int n, RowComparator comparator) {
+        int[] rows = new int[n];
+        for (int i = 0; i < n; i++) {
+            rows[i] = i;
+        }
+        for (int start = 0; start < n; start += INSERTION_SORT_THRESHOLD) {
+            int end = Math.min(start + INSERTION_SORT_THRESHOLD, n);
+            for (int i = start + 1; i < end; i++) {
+                int row = rows[i];
+                int j = i - 1;
+                while (j >= start && comparator.compare(rows[j], row) > 0) {
+                    rows[j + 1] = rows[j];
+                    j--;
+                }
+                rows[j + 1] = row;
+            }
+        }
+        int[] buffer = new int[n];
+        for (int width = INSERTION_SORT_THRESHOLD; width < n; width *= 2) {
+            for (int start = 0; start < n; start += 2 * width) {
+                int middle = Math.min(start + width, n);
+                int end = Math.min(start + 2 * width, n);
+                int i = start;
+                int j = middle;
+                int k = start;
+                if (middle == end || comparator.compare(rows[middle - 1], rows[middle]) <= 0) {
+                    System.arraycopy(rows, start, buffer, start, end - start);
+                    continue;
+                }
+                while (i < middle && j < end) {
+                    buffer[k++] = comparator.compare(rows[j], rows[i]) < 0 ? rows[j++] : rows[i++];
+                }
+                while (i < middle) {
+                    buffer[k++] = rows[i++];
+                }
+                while (j < end) {
+                    buffer[k++] = rows[j++];
+                }
+            }
+            int[] swap = rows;
+            rows = buffer;
+            buffer = swap;
+        }
+        return rows;
+    }
+}
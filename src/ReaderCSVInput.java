@@ -0,0 +1,126 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * Czyta znaki z Readera do własnego, powiększanego w razie potrzeby bufora char[]
+ */
+class ReaderCSVInput extends CSVInput {
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private char[] buffer;
+    private int bufferLength;
+    private int position;
+    private boolean endOfInput;
+    private boolean skipLineFeed;
+    private int lineStart;
+    private int lineEnd;
+
+    ReaderCSVInput(Reader reader) {
+        this.reader = reader;
+        this.buffer = new char[INITIAL_BUFFER_SIZE];
+    }
+
+    private ReaderCSVInput(char[] line) {
+        this.reader = Reader.nullReader();
+        this.buffer = line;
+        this.bufferLength = line.length;
+        this.position = line.length;
+        this.endOfInput = true;
+        this.lineEnd = line.length;
+    }
+
+    @Override
+    boolean readLine() throws IOException {
+        if (skipLineFeed) {
+            if (position == bufferLength) {
+                fill();
+            }
+            if (position < bufferLength && buffer[position] == '\n') {
+                position++;
+            }
+            skipLineFeed = false;
+        }
+        int scan = position;
+        while (true) {
+            for (; scan < bufferLength; scan++) {
+                char c = buffer[scan];
+                if (c == '\n' || c == '\r') {
+                    lineStart = position;
+                    lineEnd = scan;
+                    position = scan + 1;
+                    skipLineFeed = c == '\r';
+                    return true;
+                }
+            }
+            int scanned = scan - position;
+            if (!fill()) {
+                if (position == bufferLength) {
+                    return false;
+                }
+                lineStart = position;
+                lineEnd = bufferLength;
+                position = bufferLength;
+                return true;
+            }
+            scan = position + scanned;
+        }
+    }
+
+    /**
+     * Dosuwa niewykorzystaną część bufora na początek (powiększając go w razie potrzeby)
+     * i doczytuje dane z readera
+     * @return false, jeżeli nie udało się doczytać żadnego znaku
+     */
+    private boolean fill() throws IOException {
+        if (endOfInput) {
+            return false;
+        }
+        int remaining = bufferLength - position;
+        if (remaining == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        System.arraycopy(buffer, position, buffer, 0, remaining);
+        position = 0;
+        bufferLength = remaining;
+        int read = reader.read(buffer, bufferLength, buffer.length - bufferLength);
+        if (read < 0) {
+            endOfInput = true;
+            return false;
+        }
+        bufferLength += read;
+        return true;
+    }
+
+    @Override
+    int lineStart() {
+        return lineStart;
+    }
+
+    @Override
+    int lineEnd() {
+        return lineEnd;
+    }
+
+    @Override
+    char charAt(int index) {
+        return buffer[index];
+    }
+
+    @Override
+    String substring(int start, int end) {
+        return new String(buffer, start, end - start);
+    }
+
+    @Override
+    CharSequence line() {
+        return CharBuffer.wrap(buffer, lineStart, lineEnd - lineStart);
+    }
+
+    @Override
+    CSVInput copyLine() {
+        return new ReaderCSVInput(Arrays.copyOfRange(buffer, lineStart, lineEnd));
+    }
+}
@@ -0,0 +1,141 @@
+import java.util.Arrays;
+
+/**
+ * Tabela złożona z wybranych wierszy innej tabeli (np. po sortowaniu) - kolumny są odczytywane z tabeli bazowej,
+ * kopiowane są tylko numery wierszy. Jednostki zwracane przez unit() są jednostkami tabeli bazowej,
+ * więc zachowują równość z jednostkami przed wyborem
+ */
+class SelectedAdminUnitTable extends AdminUnitTable {
+    private final AdminUnitTable base;
+    private final int[] rows;
+    private final int[] parent;
+    private final int[] childOffsets;
+    private final int[] children;
+
+    /**
+     * @param base - tabela bazowa
+     * @param rows - wiersze tabeli bazowej w kolejności nowej tabeli
+     */
+    SelectedAdminUnitTable(AdminUnitTable base, int[] rows) {
+        if (base instanceof SelectedAdminUnitTable selected) {
+            int[] baseRows = new int[rows.length];
+            for (int i = 0; i < rows.length; i++) {
+                baseRows[i] = selected.rows[rows[i]];
+            }
+            base = selected.base;
+            rows = baseRows;
+        }
+        this.base = base;
+        this.rows = rows;
+
+        int n = rows.length;
+        int[] positionOf = new int[base.size()];
+        Arrays.fill(positionOf, -1);
+        for (int i = 0; i < n; i++) {
+            positionOf[rows[i]] = i;
+        }
+        parent = new int[n];
+        childOffsets = new int[n + 1];
+        int childCount = 0;
+        for (int i = 0; i < n; i++) {
+            int baseParent = base.parent(rows[i]);
+            parent[i] = baseParent < 0 ? -1 : positionOf[baseParent];
+            for (int j = base.childOffset(rows[i]); j < base.childOffset(rows[i] + 1); j++) {
+                if (positionOf[base.child(j)] >= 0) {
+                    childCount++;
+                }
+            }
+            childOffsets[i + 1] = childCount;
+        }
+        children = new int[childCount];
+        int next = 0;
+        for (int row : rows) {
+            for (int j = base.childOffset(row); j < base.childOffset(row + 1); j++) {
+                int position = positionOf[base.child(j)];
+                if (position >= 0) {
+                    children[next++] = position;
+                }
+            }
+        }
+    }
+
+    @Override
+    int size() {
+        return rows.length;
+    }
+
+    @Override
+    long id(int row) {
+        return base.id(rows[row]);
+    }
+
+    @Override
+    long parentId(int row) {
+        return base.parentId(rows[row]);
+    }
+
+    @Override
+    String name(int row) {
+        return base.name(rows[row]);
+    }
+
+    @Override
+    int adminLevel(int row) {
+        return base.adminLevel(rows[row]);
+    }
+
+    @Override
+    int population(int row) {
+        return base.population(rows[row]);
+    }
+
+    @Override
+    double area(int row) {
+        return base.area(rows[row]);
+    }
+
+    @Override
+    double density(int row) {
+        return base.density(rows[row]);
+    }
+
+    @Override
+    double xmin(int row) {
+        return base.xmin(rows[row]);
+    }
+
+    @Override
+    double ymin(int row) {
+        return base.ymin(rows[row]);
+    }
+
+    @Override
+    double xmax(int row) {
+        return base.xmax(rows[row]);
+    }
+
+    @Override
+    double ymax(int row) {
+        return base.ymax(rows[row]);
+    }
+
+    @Override
+    int parent(int row) {
+        return parent[row];
+    }
+
+    @Override
+    int childOffset(int row) {
+        return childOffsets[row];
+    }
+
+    @Override
+    int child(int index) {
+        return children[index];
+    }
+
+    @Override
+    AdminUnit unit(int row) {
+        return base.unit(rows[row]);
+    }
+}
@@ -0,0 +1,326 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdminUnitListTest {
+    private static AdminUnitList readAdminUnits() throws IOException {
+        AdminUnitList list = new AdminUnitList();
+        list.read("admin-units.csv");
+        return list;
+    }
+
+    private static List<String> names(AdminUnitList list) {
+        List<String> names = new ArrayList<>();
+        for (AdminUnit unit : list.units) {
+            names.add(unit.id + " " + unit.name);
+        }
+        return names;
+    }
+
+    @Test
+    void testGetNeighborsOnTableMatchesScanOfList() throws IOException {
+        // given
+        AdminUnitList list = readAdminUnits();
+        AdminUnitList tableList = new AdminUnitList(AdminUnitTable.of(list.units));
+
+        for (int i = 0; i < list.units.size(); i += 50) {
+            // when
+            AdminUnitList expected = list.getNeighbors(list.units.get(i), 15);
+            AdminUnitList actual = tableList.getNeighbors(tableList.units.get(i), 15);
+
+            // then
+            assertEquals(names(expected), names(actual));
+        }
+    }
+
+    @Test
+    void testGetNeighborsSeesChangedAndReorderedUnits() {
+        // given
+        AdminUnit a = new AdminUnit("a", 6, 0, 0, 0, null, new BoundingBox(0, 0, 2, 2));
+        AdminUnit b = new AdminUnit("b", 6, 0, 0, 0, null, new BoundingBox(1, 1, 3, 3));
+        AdminUnit c = new AdminUnit("c", 6, 0, 0, 0, null, new BoundingBox(5, 5, 6, 6));
+        AdminUnitList list = new AdminUnitList(new ArrayList<>(List.of(a, b, c)));
+        assertEquals(List.of(b), list.getNeighbors(a, 15).units);
+
+        // when
+        c.bbox = new BoundingBox(1.5, 1.5, 4, 4);
+        List<AdminUnit> moved = list.getNeighbors(a, 15).units;
+        Collections.reverse(list.units);
+        List<AdminUnit> reordered = list.getNeighbors(a, 15).units;
+
+        // then
+        assertEquals(List.of(b, c), moved);
+        assertEquals(List.of(c, b), reordered);
+    }
+
+    private static List<Double> distances(AdminUnitList list, double lat, double lon) {
+        List<Double> distances = new ArrayList<>();
+        for (AdminUnit unit : list.units) {
+            distances.add(BoundingBox.haversine(lat, lon, unit.bbox.getCenterY(), unit.bbox.getCenterX()));
+        }
+        return distances;
+    }
+
+    @Test
+    void testNearestAndWithinRadiusOnTableMatchScanOfList() throws IOException {
+        // given
+        AdminUnitList list = readAdminUnits();
+        AdminUnitList tableList = new AdminUnitList(AdminUnitTable.of(list.units));
+        double[][] points = {{50.06, 19.94}, {52.23, 21.01}, {49.3, 20.0}, {54.35, 18.65}, {0, 0}};
+
+        for (double[] point : points) {
+            // when
+            AdminUnitList nearest = list.nearest(point[0], point[1], 25, level -> level >= 6);
+            AdminUnitList tableNearest = tableList.nearest(point[0], point[1], 25, level -> level >= 6);
+            AdminUnitList within = list.withinRadius(point[0], point[1], 20);
+            AdminUnitList tableWithin = tableList.withinRadius(point[0], point[1], 20);
+
+            // then
+            assertEquals(25, nearest.units.size());
+            assertEquals(distances(nearest, point[0], point[1]), distances(tableNearest, point[0], point[1]));
+            assertEquals(names(within), names(tableWithin));
+            List<Double> withinDistances = distances(within, point[0], point[1]);
+            for (int i = 0; i < withinDistances.size(); i++) {
+                assertTrue(withinDistances.get(i) <= 20);
+                assertTrue(i == 0 || withinDistances.get(i - 1) <= withinDistances.get(i));
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> list.nearest(50, 20, -1));
+        assertThrows(IllegalArgumentException.class, () -> tableList.nearest(50, 20, -1));
+    }
+
+    @Test
+    void testNearestAndWithinRadiusSeeChangedAndReorderedUnits() {
+        // given
+        AdminUnit a = new AdminUnit("a", 8, 0, 0, 0, null, new BoundingBox(20.0, 50.0, 20.0, 50.0));
+        AdminUnit b = new AdminUnit("b", 8, 0, 0, 0, null, new BoundingBox(20.1, 50.0, 20.1, 50.0));
+        AdminUnit c = new AdminUnit("c", 8, 0, 0, 0, null, new BoundingBox(25.0, 50.0, 25.0, 50.0));
+        AdminUnitList list = new AdminUnitList(new ArrayList<>(List.of(a, b, c)));
+        assertEquals(List.of(a), list.nearest(50, 20, 1).units);
+        assertEquals(List.of(a, b), list.withinRadius(50, 20, 10).units);
+
+        // when
+        c.bbox = new BoundingBox(20.05, 50.0, 20.05, 50.0);
+        List<AdminUnit> moved = list.withinRadius(50, 20, 10).units;
+        a.bbox = new BoundingBox();
+        List<AdminUnit> nearestAfterEmpty = list.nearest(50, 20, 1).units;
+        Collections.reverse(list.units);
+        List<AdminUnit> reordered = list.nearest(50, 20, 3).units;
+
+        // then
+        assertEquals(List.of(a, c, b), moved);
+        assertEquals(List.of(c), nearestAfterEmpty);
+        assertEquals(List.of(c, b), reordered);
+    }
+
+    @Test
+    void testContainingOnTableMatchesScanOfList() throws IOException {
+        // given
+        AdminUnitList list = readAdminUnits();
+        AdminUnitList tableList = new AdminUnitList(AdminUnitTable.of(list.units));
+
+        for (int i = 0; i < list.units.size(); i += 100) {
+            BoundingBox bbox = list.units.get(i).bbox;
+            if (bbox.isEmpty()) {
+                continue;
+            }
+            // when
+            AdminUnitList expected = list.containing(bbox.getCenterX(), bbox.getCenterY());
+            AdminUnitList actual = tableList.containing(bbox.getCenterX(), bbox.getCenterY());
+
+            // then
+            assertFalse(expected.units.isEmpty());
+            assertEquals(names(expected), names(actual));
+        }
+    }
+
+    @Test
+    void testContainingSeesChangedAndReorderedUnits() {
+        // given
+        AdminUnit parent = new AdminUnit("parent", 4, 0, 0, 0, null, new BoundingBox(0, 0, 10, 10));
+        AdminUnit first = new AdminUnit("first", 6, 0, 0, 0, parent, new BoundingBox(0, 0, 5, 5));
+        AdminUnit second = new AdminUnit("second", 6, 0, 0, 0, parent, new BoundingBox(1, 1, 6, 6));
+        parent.setChildren(new ArrayList<>(List.of(first, second)));
+        AdminUnitList list = new AdminUnitList(new ArrayList<>(List.of(first, parent, second)));
+        assertEquals(List.of(parent, first, second), list.containing(2, 2).units);
+
+        // when
+        Collections.reverse(list.units);
+        List<AdminUnit> reordered = list.containing(2, 2).units;
+        second.bbox = new BoundingBox(7, 7, 8, 8);
+        List<AdminUnit> moved = list.containing(2, 2).units;
+
+        // then
+        assertEquals(List.of(parent, second, first), reordered);
+        assertEquals(List.of(parent, first), moved);
+    }
+
+    @Test
+    void testTableOfListSeesChangedAndReorderedUnits() {
+        // given
+        AdminUnit a = new AdminUnit("a", 6, 100, 1, 0, null, new BoundingBox(0, 0, 1, 1));
+        AdminUnit b = new AdminUnit("b", 6, 200, 2, 0, null, new BoundingBox());
+        AdminUnitList list = new AdminUnitList(new ArrayList<>(List.of(a, b)));
+        assertEquals(100, list.table().population(0));
+
+        // when
+        a.population = 150;
+        b.bbox = new BoundingBox(2, 2, 3, 3);
+        Collections.swap(list.units, 0, 1);
+        AdminUnitTable table = list.table();
+
+        // then
+        assertEquals("b", table.name(0));
+        assertEquals(2.0, table.xmin(0));
+        assertEquals(150, table.population(1));
+    }
+
+    @Test
+    void testTableOfTableBackedListIsItsTable() {
+        // given
+        AdminUnitTable table = AdminUnitTable.of(List.of(new AdminUnit("a", 6, 100, 1, 0, null, new BoundingBox())));
+
+        // when
+        AdminUnitList list = new AdminUnitList(table);
+
+        // then
+        assertSame(table, list.table());
+        assertTrue(list.isTableBacked());
+    }
+
+    @Test
+    void testSelectByAttributesMatchesFilter() throws IOException {
+        // given
+        AdminUnitList list = readAdminUnits();
+        AdminUnitList tableList = new AdminUnitList(AdminUnitTable.of(list.units));
+
+        for (AdminUnitList source : List.of(list, tableList)) {
+            // when
+            AdminUnitList byName = source.selectByExactName("Nowa Wieś");
+            AdminUnitList byPrefix = source.selectByNamePrefix("Kra");
+            AdminUnitList byLevel = source.selectByLevel(6);
+            AdminUnitList byPopulation = source.selectByPopulation(1000, 2000);
+            AdminUnitList byArea = source.selectByArea(10, 20);
+
+            // then
+            assertFalse(byName.units.isEmpty());
+            assertEquals(names(list.filter(unit -> unit.name.equals("Nowa Wieś"))), names(byName));
+            assertEquals(names(list.filter(unit -> unit.name.startsWith("Kra"))), names(byPrefix));
+            assertEquals(names(list.filter(unit -> unit.adminLevel == 6)), names(byLevel));
+            assertEquals(names(list.filter(unit -> unit.population >= 1000 && unit.population <= 2000)),
+                    names(byPopulation));
+            assertEquals(names(list.filter(unit -> unit.area >= 10 && unit.area <= 20)), names(byArea));
+        }
+    }
+
+    @Test
+    void testSelectByAttributesSeesChangedUnits() {
+        // given
+        AdminUnit a = new AdminUnit("Kraków", 6, 100, 1, 0, null, new BoundingBox());
+        AdminUnit b = new AdminUnit("Tarnów", 6, 200, 2, 0, null, new BoundingBox());
+        AdminUnitList list = new AdminUnitList(new ArrayList<>(List.of(a, b)));
+        assertEquals(List.of(a), list.selectByExactName("Kraków").units);
+        assertEquals(List.of(a, b), list.selectByLevel(6).units);
+
+        // when
+        b.name = "Kraków";
+        a.adminLevel = 7;
+        b.population = 50;
+
+        // then
+        assertEquals(List.of(a, b), list.selectByExactName("Kraków").units);
+        assertEquals(List.of(b), list.selectByLevel(6).units);
+        assertEquals(List.of(b), list.selectByPopulation(0, 60).units);
+    }
+
+    @Test
+    void testSelectByNameFastPathsMatchRegex() throws IOException {
+        // given
+        AdminUnitList list = readAdminUnits();
+        list.units.add(new AdminUnit("Kra\nków", 8, 0, 0, 0, null, new BoundingBox()));
+        list.units.add(new AdminUnit("Stary\rSącz", 8, 0, 0, 0, null, new BoundingBox()));
+        AdminUnitList tableList = new AdminUnitList(AdminUnitTable.of(list.units));
+        String[] patterns = {"Kraków", "Kra.*", ".*ów", ".*Wie.*", "K[a-z]+ów", "", ".*", ".*.*", "Stary.*",
+                ".*Sącz", "a.b", "Nowa Wieś"};
+
+        for (AdminUnitList source : List.of(list, tableList)) {
+            for (String pattern : patterns) {
+                for (boolean parallel : new boolean[]{false, true}) {
+                    // when
+                    AdminUnitList regex = source.selectByName(pattern, true, parallel);
+                    AdminUnitList contains = source.selectByName(pattern, false, parallel);
+
+                    // then
+                    assertEquals(names(list.filter(unit -> unit.name.matches(pattern))), names(regex));
+                    assertEquals(names(list.filter(unit -> unit.name.contains(pattern))), names(contains));
+                }
+            }
+        }
+    }
+
+    @Test
+    void testPatternCacheReusesCompiledPatterns() {
+        // given
+        String regex = "K[a-z]+ów";
+
+        // when
+        Pattern first = AdminUnitList.pattern(regex);
+        Pattern second = AdminUnitList.pattern(regex);
+
+        // then
+        assertSame(first, second);
+        assertEquals(regex, first.pattern());
+    }
+
+    @Test
+    void testParallelFilterAndSortMatchSequential() throws IOException {
+        // given
+        AdminUnitList list = readAdminUnits();
+        Comparator<AdminUnit> byLevel = Comparator.comparingInt(unit -> unit.adminLevel);
+        int threshold = AdminUnitList.getParallelThreshold();
+        try {
+            // when
+            AdminUnitList.setParallelThreshold(Integer.MAX_VALUE);
+            AdminUnitList sequentialSort = list.sort(byLevel);
+            AdminUnitList.setParallelThreshold(0);
+            AdminUnitList parallelSort = list.sort(byLevel);
+            AdminUnitList sequentialFilter = list.filter(unit -> unit.population > 1000, false);
+            AdminUnitList parallelFilter = list.filter(unit -> unit.population > 1000, true);
+
+            // then
+            assertEquals(sequentialSort.units, parallelSort.units);
+            assertEquals(sequentialFilter.units, parallelFilter.units);
+        }
+        finally {
+            AdminUnitList.setParallelThreshold(threshold);
+        }
+    }
+
+    @Test
+    void testReadParallelMatchesRead() throws IOException {
+        // given
+        AdminUnitList sequential = new AdminUnitList();
+        AdminUnitList parallel = new AdminUnitList();
+        int threshold = AdminUnitList.getParallelThreshold();
+        try {
+            // when
+            AdminUnitList.setParallelThreshold(Integer.MAX_VALUE);
+            sequential.read("admin-units.csv");
+            AdminUnitList.setParallelThreshold(0);
+            parallel.readParallel("admin-units.csv");
+        }
+        finally {
+            AdminUnitList.setParallelThreshold(threshold);
+        }
+
+        // then
+        AdminUnitSnapshotTest.assertTablesEqual(AdminUnitTable.of(sequential.units), AdminUnitTable.of(parallel.units));
+    }
+}
@@ -0,0 +1,72 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdminUnitPredicateTest {
+    @Test
+    void testAndChecksConditionsInDeclaredOrder() {
+        // given
+        AdminUnit province = new AdminUnit("province", 4, 0, 0, 0, null, new BoundingBox());
+        AdminUnit district = new AdminUnit("district", 6, 0, 0, 0, province, new BoundingBox());
+        AdminUnitList list = new AdminUnitList(AdminUnitTable.of(List.of(province, district)));
+        List<String> checked = new ArrayList<>();
+        AdminUnitPredicate pred = AdminUnitPredicate.of(unit -> checked.add(unit.name))
+                .and(AdminUnitPredicate.levelEq(6))
+                .and(unit -> unit.parent.name.equals("province"));
+
+        // when
+        boolean provinceMatches = pred.test(province);
+        boolean districtMatches = pred.test(district);
+        List<String> checkedByTest = new ArrayList<>(checked);
+        checked.clear();
+        List<AdminUnit> filtered = list.filter(pred).units;
+
+        // then
+        assertFalse(provinceMatches);
+        assertTrue(districtMatches);
+        assertEquals(List.of("province", "district"), checkedByTest);
+        assertEquals(List.of("district"), checked);
+        assertEquals(1, filtered.size());
+        assertEquals("district", filtered.get(0).name);
+    }
+
+    @Test
+    void testPlannedFilterMatchesScanWithLambda() throws IOException {
+        // given
+        AdminUnitList list = new AdminUnitList();
+        list.read("admin-units.csv");
+        AdminUnitList tableList = new AdminUnitList(AdminUnitTable.of(list.units));
+        List<AdminUnitPredicate> predicates = List.of(
+                AdminUnitPredicate.levelEq(6),
+                AdminUnitPredicate.nameStartsWith("Ko").and(AdminUnitPredicate.levelEq(8)),
+                AdminUnitPredicate.populationBetween(1000, 2000).and(unit -> unit.area > 10),
+                AdminUnitPredicate.nameEquals("Nowa Wieś").or(AdminUnitPredicate.areaBetween(100, 120)),
+                AdminUnitPredicate.levelEq(7).or(unit -> unit.population > 100000),
+                AdminUnitPredicate.bboxIntersects(new BoundingBox(19.9, 50.0, 20.0, 50.1))
+                        .and(AdminUnitPredicate.levelEq(8)));
+
+        for (AdminUnitPredicate pred : predicates) {
+            // when
+            AdminUnitPredicate.Plan tablePlan = AdminUnitPredicate.plan(pred, tableList);
+            AdminUnitPredicate.Plan listPlan = AdminUnitPredicate.plan(pred, list);
+            List<AdminUnit> expected = list.filter(unit -> pred.test(unit)).units;
+            List<AdminUnit> planned = list.filter(pred).units;
+            List<AdminUnit> tablePlanned = tableList.filter(pred).units;
+            List<AdminUnit> tableScanned = tableList.filter(unit -> pred.test(unit)).units;
+
+            // then
+            assertNull(listPlan.positions());
+            assertEquals(pred.indexed(), tablePlan.positions() != null);
+            assertEquals(expected, planned);
+            assertEquals(tableScanned, tablePlanned);
+            assertEquals(expected.size(), tablePlanned.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).name, tablePlanned.get(i).name);
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdminUnitQueryTest {
+    @Test
+    void testQueryPagesLikeFilterSortAndSubList() {
+        // given
+        List<AdminUnit> units = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            units.add(new AdminUnit("unit " + i, 8, i * 7 % 13, i % 5, 0, null, new BoundingBox()));
+        }
+        AdminUnitList list = new AdminUnitList(units);
+        Predicate<AdminUnit> pred = unit -> unit.population % 2 == 0;
+        Comparator<AdminUnit> cmp = Comparator.comparingDouble(unit -> unit.area);
+        List<AdminUnit> matching = list.filter(pred).units;
+        List<AdminUnit> sorted = new ArrayList<>(matching);
+        sorted.sort(cmp);
+
+        for (int offset : new int[]{0, 3, sorted.size() - 1, sorted.size(), sorted.size() + 5}) {
+            for (int limit : new int[]{1, 4, sorted.size(), Integer.MAX_VALUE}) {
+                // when
+                AdminUnitList page = new AdminUnitQuery().selectFrom(list).where(pred)
+                        .sort(cmp).offset(offset).limit(limit).execute();
+                AdminUnitList unsortedPage = new AdminUnitQuery().selectFrom(list).where(pred)
+                        .offset(offset).limit(limit).execute();
+
+                // then
+                int from = Math.min(offset, sorted.size());
+                int to = (int) Math.min((long) offset + limit, sorted.size());
+                assertEquals(sorted.subList(from, to), page.units);
+                assertEquals(matching.subList(from, to), unsortedPage.units);
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdminUnitSnapshotTest {
+    static void assertTablesEqual(AdminUnitTable expected, AdminUnitTable actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int row = 0; row < expected.size(); row++) {
+            assertEquals(expected.id(row), actual.id(row));
+            assertEquals(expected.parentId(row), actual.parentId(row));
+            assertEquals(expected.name(row), actual.name(row));
+            assertEquals(expected.adminLevel(row), actual.adminLevel(row));
+            assertEquals(expected.population(row), actual.population(row));
+            assertEquals(expected.area(row), actual.area(row));
+            assertEquals(expected.density(row), actual.density(row));
+            assertEquals(expected.xmin(row), actual.xmin(row));
+            assertEquals(expected.ymin(row), actual.ymin(row));
+            assertEquals(expected.xmax(row), actual.xmax(row));
+            assertEquals(expected.ymax(row), actual.ymax(row));
+            assertEquals(expected.parent(row), actual.parent(row));
+            assertEquals(expected.childOffset(row), actual.childOffset(row));
+        }
+        assertEquals(expected.childOffset(expected.size()), actual.childOffset(actual.size()));
+        for (int i = 0; i < expected.childOffset(expected.size()); i++) {
+            assertEquals(expected.child(i), actual.child(i));
+        }
+    }
+
+    private static List<AdminUnit> smallUnits() {
+        AdminUnit parent = new AdminUnit("a", 4, 10, 1.5, 2.5, null, new BoundingBox(0, 0, 2, 2));
+        AdminUnit child = new AdminUnit("żb", 6, 20, 3.5, 4.5, parent, new BoundingBox());
+        parent.setChildren(new ArrayList<>(List.of(child)));
+        parent.id = 7;
+        child.id = 8;
+        child.parentId = 7;
+        return List.of(parent, child);
+    }
+
+    @Test
+    void testSnapshotRoundTripKeepsAllColumns() throws IOException {
+        // given
+        AdminUnitList list = new AdminUnitList();
+        list.read("admin-units.csv");
+        AdminUnitTable expected = AdminUnitTable.of(list.units);
+        Path file = Files.createTempFile("admin-units", ".snapshot");
+        try {
+            // when
+            AdminUnitSnapshot.write(expected, file);
+            AdminUnitTable read = AdminUnitSnapshot.readTable(file);
+            AdminUnitTable mapped = AdminUnitSnapshot.mapTable(file);
+            List<AdminUnit> units = AdminUnitSnapshot.read(file);
+
+            // then
+            assertTablesEqual(expected, read);
+            assertTablesEqual(expected, mapped);
+            assertTablesEqual(expected, AdminUnitTable.of(units));
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testTruncatedSnapshotThrowsIOException() throws IOException {
+        // given
+        Path file = Files.createTempFile("admin-units", ".snapshot");
+        try {
+            AdminUnitSnapshot.write(smallUnits(), file);
+            byte[] bytes = Files.readAllBytes(file);
+
+            for (int length : new int[]{0, AdminUnitSnapshot.HEADER_SIZE, bytes.length / 2, bytes.length - 1}) {
+                // when
+                Files.write(file, Arrays.copyOf(bytes, length));
+
+                // then
+                assertThrows(IOException.class, () -> AdminUnitSnapshot.readTable(file));
+                assertThrows(IOException.class, () -> AdminUnitSnapshot.mapTable(file));
+                assertThrows(IOException.class, () -> AdminUnitSnapshot.read(file));
+            }
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testCorruptCountsAndOffsetsThrowIOException() throws IOException {
+        // given
+        Path file = Files.createTempFile("admin-units", ".snapshot");
+        try {
+            AdminUnitSnapshot.write(smallUnits(), file);
+            byte[] bytes = Files.readAllBytes(file);
+            int countPosition = AdminUnitSnapshot.HEADER_SIZE - Integer.BYTES;
+            // nazwy "a" i "żb" zajmują 4 bajty, przed nimi jest ostatnie przesunięcie nazw
+            int lastNameOffsetPosition = bytes.length - 4 - Integer.BYTES;
+
+            for (int[] patch : new int[][]{{countPosition, -1}, {countPosition, Integer.MAX_VALUE},
+                    {countPosition, 3}, {lastNameOffsetPosition, 0}, {lastNameOffsetPosition, 5}}) {
+                // when
+                byte[] corrupt = bytes.clone();
+                ByteBuffer.wrap(corrupt).putInt(patch[0], patch[1]);
+                Files.write(file, corrupt);
+
+                // then
+                assertThrows(IOException.class, () -> AdminUnitSnapshot.readTable(file));
+                assertThrows(IOException.class, () -> AdminUnitSnapshot.mapTable(file));
+            }
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+}
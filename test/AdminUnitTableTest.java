@@ -0,0 +1,91 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdminUnitTableTest {
+    private static List<String> names(AdminUnitList list) {
+        List<String> names = new ArrayList<>();
+        for (AdminUnit unit : list.units) {
+            names.add(unit.id + " " + unit.name);
+        }
+        return names;
+    }
+
+    @Test
+    void testOffHeapAndMappedTablesEqualHeapTable() throws IOException {
+        // given
+        AdminUnitList list = new AdminUnitList();
+        list.read("admin-units.csv");
+        AdminUnitTable heap = AdminUnitTable.of(list.units);
+        Path file = Files.createTempFile("admin-units", ".snapshot");
+        try {
+            AdminUnitSnapshot.write(heap, file);
+
+            // when
+            AdminUnitList offHeap = list.offHeap();
+            AdminUnitList mapped = AdminUnitList.mapSnapshot(file.toString());
+
+            // then
+            assertTrue(offHeap.isTableBacked());
+            assertTrue(mapped.isTableBacked());
+            AdminUnitSnapshotTest.assertTablesEqual(heap, offHeap.table());
+            AdminUnitSnapshotTest.assertTablesEqual(heap, mapped.table());
+            assertEquals(names(list), names(offHeap));
+            assertEquals(names(list), names(mapped));
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testSortedOffHeapListMatchesSortedList() throws IOException {
+        // given
+        AdminUnitList list = new AdminUnitList();
+        list.read("admin-units.csv");
+        AdminUnitList offHeap = list.offHeap();
+        Comparator<AdminUnit> byArea = Comparator.comparingDouble(unit -> unit.area);
+
+        // when
+        AdminUnitList sorted = list.sort(byArea);
+        AdminUnitList offHeapSorted = offHeap.sort(byArea);
+        AdminUnitList byName = list.sort(byArea).sortInPlaceByName();
+        AdminUnitList offHeapByName = offHeap.sort(byArea).sortInPlaceByName();
+
+        // then
+        assertTrue(offHeapSorted.isTableBacked());
+        assertEquals(names(sorted), names(offHeapSorted));
+        assertEquals(names(byName), names(offHeapByName));
+        AdminUnitSnapshotTest.assertTablesEqual(AdminUnitTable.of(sorted.units), offHeapSorted.table());
+    }
+
+    @Test
+    void testSnapshotLargerThan2GBThrowsIOException() throws IOException {
+        // given
+        Path file = Files.createTempFile("admin-units", ".snapshot");
+        try {
+            try (RandomAccessFile sparse = new RandomAccessFile(file.toFile(), "rw")) {
+                sparse.setLength(Integer.MAX_VALUE + 1L);
+            }
+
+            // when
+            IOException mapped = assertThrows(IOException.class, () -> AdminUnitSnapshot.mapTable(file));
+            IOException read = assertThrows(IOException.class, () -> AdminUnitSnapshot.readTable(file));
+
+            // then
+            assertTrue(mapped.getMessage().contains("2 GB"));
+            assertTrue(read.getMessage().contains("2 GB"));
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdminUnitTest {
+    @Test
+    void testReadFillsMissingValuesLikeWalkUpInFileOrder() throws IOException {
+        // given
+        CSVReader reader = new CSVReader("admin-units.csv", CSVReader.DEFAULT_DELIMITER, true);
+        CSVReader.Column id = reader.column("id");
+        CSVReader.Column parent = reader.column("parent");
+        CSVReader.Column area = reader.column("area");
+        CSVReader.Column density = reader.column("density");
+        CSVReader.Column population = reader.column("population");
+        List<Long> parentIds = new ArrayList<>();
+        List<Double> areas = new ArrayList<>();
+        List<Double> densities = new ArrayList<>();
+        List<Integer> populations = new ArrayList<>();
+        Map<Long, Integer> rowsById = new HashMap<>();
+        while (reader.next()) {
+            rowsById.put(id.getLong(), parentIds.size());
+            parentIds.add(parent.getLongOrDefault(0L));
+            areas.add(area.getDoubleOrDefault(0));
+            densities.add(density.getDoubleOrDefault(0));
+            populations.add(population.getIntOrDefault(0));
+        }
+        // dawny algorytm: jednostki w kolejności z pliku, gęstość najbliższego przodka z niezerową gęstością
+        for (int row = 0; row < densities.size(); row++) {
+            if (densities.get(row) == 0 && populations.get(row) == 0) {
+                double estimated = 0;
+                for (Integer ancestor = rowsById.get(parentIds.get(row)); ancestor != null;
+                     ancestor = rowsById.get(parentIds.get(ancestor))) {
+                    if (densities.get(ancestor) != 0) {
+                        estimated = densities.get(ancestor);
+                        break;
+                    }
+                }
+                densities.set(row, estimated);
+                populations.set(row, (int) (areas.get(row) * estimated));
+            }
+        }
+
+        // when
+        AdminUnitList list = new AdminUnitList();
+        list.read("admin-units.csv");
+
+        // then
+        assertEquals(densities.size(), list.units.size());
+        for (int row = 0; row < densities.size(); row++) {
+            assertEquals(densities.get(row).doubleValue(), list.units.get(row).density);
+            assertEquals(populations.get(row).intValue(), list.units.get(row).population);
+        }
+    }
+
+    @Test
+    void testFindEstimatedDensityWalksUpToNonZeroAncestor() {
+        // given
+        AdminUnit root = new AdminUnit("root", 2, 0, 10, 0, null, new BoundingBox());
+        AdminUnit province = new AdminUnit("province", 4, 500, 10, 50, root, new BoundingBox());
+        AdminUnit district = new AdminUnit("district", 6, 0, 4, 0, province, new BoundingBox());
+        AdminUnit commune = new AdminUnit("commune", 7, 0, 2, 0, district, new BoundingBox());
+
+        // when
+        district.fixMissingValues();
+        commune.fixMissingValues();
+        root.fixMissingValues();
+
+        // then
+        assertEquals(50.0, district.density);
+        assertEquals(200, district.population);
+        assertEquals(50.0, commune.density);
+        assertEquals(100, commune.population);
+        assertEquals(0.0, root.density);
+        assertEquals(0.0, new AdminUnit("orphan", 8, 0, 1, 0, root, new BoundingBox()).findEstimatedDensity());
+    }
+}
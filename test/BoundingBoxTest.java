@@ -0,0 +1,55 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundingBoxTest {
+    @Test
+    void testIsWithinMatchesDistanceToNearThreshold() throws IOException {
+        // given
+        AdminUnitList list = new AdminUnitList();
+        list.read("admin-units.csv");
+        List<BoundingBox> boxes = new ArrayList<>();
+        for (int i = 0; i < list.units.size(); i += 97) {
+            if (!list.units.get(i).bbox.isEmpty()) {
+                boxes.add(list.units.get(i).bbox);
+            }
+        }
+
+        for (int i = 0; i + 1 < boxes.size(); i++) {
+            BoundingBox from = boxes.get(i);
+            BoundingBox to = boxes.get(i + 1);
+            double distance = from.distanceTo(to);
+            for (double km : new double[]{distance, Math.nextUp(distance), Math.nextDown(distance),
+                    distance * (1 + 1e-9), distance * (1 - 1e-9), distance + 1, distance / 2}) {
+                // when
+                boolean within = from.isWithin(to, km);
+                boolean withinBatch = from.isWithin(to, km, BoundingBox.chordThreshold(km));
+
+                // then
+                assertEquals(from.distanceTo(to) <= km, within);
+                assertEquals(within, withinBatch);
+            }
+        }
+    }
+
+    @Test
+    void testIsWithinSamePointAndInvalidDistance() {
+        // given
+        BoundingBox box = new BoundingBox(19.9, 50.0, 20.0, 50.1);
+        BoundingBox same = new BoundingBox(19.9, 50.0, 20.0, 50.1);
+
+        // when
+        boolean zero = box.isWithin(same, 0);
+        boolean negative = box.isWithin(same, -1);
+        boolean nan = box.isWithin(same, Double.NaN);
+
+        // then
+        assertTrue(zero);
+        assertFalse(negative);
+        assertFalse(nan);
+    }
+}
@@ -3,9 +3,11 @@ import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.Locale;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -162,6 +164,160 @@ class CSVReaderTest {
         assertEquals(expectedFirstLine[2], reader.get("c"));
     }
 
+    @Test
+    void testQuotedFieldsWithDefaultDelimiter() throws IOException {
+        // given
+        String text = "a,b,c\n1,\"Smith, \"\"John\"\"\",3\n,,";
+        reader = new CSVReader(new StringReader(text), CSVReader.DEFAULT_DELIMITER, true);
+
+        // when
+        reader.next();
+
+        // then
+        assertEquals("1", reader.get("a"));
+        assertEquals("\"Smith, \"\"John\"\"\"", reader.get("b"));
+        assertEquals(3, reader.getInt("c"));
+
+        reader.next();
+        assertEquals("", reader.get("a"));
+        assertTrue(reader.isMissing("c"));
+    }
+
+    @Test
+    void testReadsLinesLongerThanBufferWithCrLf() throws IOException {
+        // given
+        String longValue = "x".repeat(20_000);
+        String text = "a,b\r\n%s,1.5\r\n-7,2e3\r\n".formatted(longValue);
+        reader = new CSVReader(new StringReader(text), ",", true);
+
+        // when
+        reader.next();
+
+        // then
+        assertEquals(longValue, reader.get("a"));
+        assertEquals(1.5, reader.getDouble("b"));
+
+        reader.next();
+        assertEquals(-7L, reader.getLong("a"));
+        assertEquals(2000.0, reader.getDouble("b"));
+        assertFalse(reader.next());
+    }
+
+    @Test
+    void testMappedFileGivesSameValuesAsReader() throws IOException {
+        // given
+        CSVReader mapped = new CSVReader(Path.of("titanic-part.csv"));
+
+        // when
+        while (reader.next()) {
+            assertTrue(mapped.next());
+
+            // then
+            assertEquals(reader.getRecordLength(), mapped.getRecordLength());
+            for (int i = 0; i < reader.getRecordLength(); i++) {
+                assertEquals(reader.get(i), mapped.get(i));
+            }
+            assertEquals(reader.getDouble("Fare"), mapped.getDouble("Fare"));
+        }
+        assertFalse(mapped.next());
+    }
+
+    @Test
+    void testChunksCoverAllRecordsInOrder() throws IOException {
+        // given
+        CSVReader mapped = new CSVReader(Path.of("titanic-part.csv"));
+
+        // when
+        List<CSVReader> chunks = mapped.splitIntoChunks(4);
+
+        // then
+        assertTrue(chunks.size() > 1);
+        for (CSVReader chunk : chunks) {
+            while (chunk.next()) {
+                assertTrue(reader.next());
+                assertEquals(reader.get("Name"), chunk.get("Name"));
+            }
+        }
+        assertFalse(reader.next());
+    }
+
+    @Test
+    void testNumericGettersWithDefaults() throws IOException {
+        // given
+        reader.next();
+
+        // when
+        int age = reader.getIntOrDefault("Age", -1);
+        int cabin = reader.getIntOrDefault("Cabin", -1);
+        int fare = reader.getIntOrDefault("Fare", -1);
+
+        // then
+        assertEquals(22, age);
+        assertEquals(-1, cabin);
+        assertEquals(-1, fare);
+        assertEquals(7.25, reader.getDoubleOrNaN("Fare"));
+        assertTrue(Double.isNaN(reader.getDoubleOrNaN("Cabin")));
+        assertTrue(Double.isNaN(reader.getDoubleOrNaN("Sex")));
+        assertEquals(1L, reader.getLongOrDefault("PassengerId", 0L));
+        assertThrows(InvalidHeaderNameException.class, ()->reader.getIntOrDefault("Invalid header", 0));
+    }
+
+    @Test
+    void testProjectionReadsOnlySelectedColumns() throws IOException {
+        // given
+        reader = new CSVReader("titanic-part.csv", CSVReader.DEFAULT_DELIMITER, "Name", "Age");
+
+        // when
+        reader.next();
+
+        // then
+        assertEquals("\"Braund, Mr. Owen Harris\"", reader.get("Name"));
+        assertEquals(22, reader.getInt("Age"));
+        assertEquals(22, reader.getInt(5));
+        assertThrows(InvalidHeaderNameException.class, ()->reader.get("Fare"));
+        assertThrows(InvalidIndexException.class, ()->reader.get(9));
+        assertThrows(InvalidIndexException.class, ()->reader.isMissing(9));
+    }
+
+    @Test
+    void testColumnHandles() throws IOException {
+        // given
+        CSVReader.Column fare = reader.column("Fare");
+        CSVReader.Column cabin = reader.column("Cabin");
+
+        // when
+        reader.next();
+
+        // then
+        assertEquals(7.25, fare.getDouble());
+        assertEquals("", cabin.get());
+        assertThrows(InvalidHeaderNameException.class, ()->reader.column("Invalid header"));
+
+        reader.next();
+        assertEquals(71.2833, fare.getDouble());
+        assertEquals("C85", cabin.get());
+    }
+
+    @Test
+    void testRecordsStream() throws IOException {
+        // given
+        CSVReader mapped = new CSVReader(Path.of("titanic-part.csv"));
+
+        // when
+        List<CSVRecord> records = mapped.records().toList();
+        double totalFare = new CSVReader(Path.of("titanic-part.csv")).records()
+                .parallel()
+                .mapToDouble(record -> record.getDouble("Fare"))
+                .sum();
+
+        // then
+        assertEquals(18, records.size());
+        assertEquals(1, records.get(0).getInt("PassengerId"));
+        assertEquals("\"Braund, Mr. Owen Harris\"", records.get(0).get("Name"));
+        assertEquals(18, records.get(17).getInt("PassengerId"));
+        assertEquals(records.stream().mapToDouble(record -> record.getDouble("Fare")).sum(), totalFare, 1e-9);
+    }
+
     @Test
     void getTime() throws IOException {
         //given
@@ -190,5 +346,21 @@ class CSVReaderTest {
         assertEquals(expectedDate, reader.getDate(0, "yyyy-MM-dd"));
     }
 
+    @Test
+    void getDateWithFormatter() throws IOException {
+        //given
+        reader = new CSVReader("dates.csv",",",true);
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+        LocalDate expectedDate = LocalDate.parse("2023-11-01", formatter);
+
+        // when
+        reader.next();
+
+        // then
+        assertEquals(expectedDate, reader.getDate("Date", formatter));
+        assertEquals(expectedDate, reader.getDate("Date", "yyyy-MM-dd"));
+        assertEquals(LocalTime.of(14, 35), reader.getTime("Time", DateTimeFormatter.ofPattern("HH:mm")));
+        assertSame(CSVReader.formatter("dd.MM.yyyy"), CSVReader.formatter("dd.MM.yyyy"));
+    }
 
-}
\ No newline at end of file
+}
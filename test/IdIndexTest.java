@@ -0,0 +1,107 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdIndexTest {
+    @Test
+    void testIdIndexFindsRowsOnDenseAndHashedIds() {
+        // given
+        long[] dense = {10, 11, 13, 12, 11};
+        long[] sparse = {Long.MIN_VALUE, Long.MAX_VALUE, 0, -5, 1_000_000_007L, Long.MIN_VALUE};
+        long[] spread = new long[1000];
+        for (int i = 0; i < spread.length; i++) {
+            spread[i] = (i - 500) * 1_000_000_000_000L;
+        }
+
+        // when
+        IdIndex denseIndex = new IdIndex(dense);
+        IdIndex sparseIndex = new IdIndex(sparse);
+        IdIndex spreadIndex = new IdIndex(spread);
+        IdIndex emptyIndex = new IdIndex(new long[0]);
+
+        // then
+        assertEquals(0, denseIndex.get(10));
+        assertEquals(4, denseIndex.get(11));
+        assertEquals(3, denseIndex.get(12));
+        assertEquals(2, denseIndex.get(13));
+        assertEquals(IdIndex.ABSENT, denseIndex.get(9));
+        assertEquals(IdIndex.ABSENT, denseIndex.get(14));
+        assertEquals(IdIndex.ABSENT, denseIndex.get(Long.MIN_VALUE));
+
+        assertEquals(5, sparseIndex.get(Long.MIN_VALUE));
+        assertEquals(1, sparseIndex.get(Long.MAX_VALUE));
+        assertEquals(2, sparseIndex.get(0));
+        assertEquals(3, sparseIndex.get(-5));
+        assertEquals(4, sparseIndex.get(1_000_000_007L));
+        assertEquals(IdIndex.ABSENT, sparseIndex.get(1));
+        assertEquals(IdIndex.ABSENT, sparseIndex.get(Long.MAX_VALUE - 1));
+
+        for (int i = 0; i < spread.length; i++) {
+            assertEquals(i, spreadIndex.get(spread[i]));
+            assertEquals(IdIndex.ABSENT, spreadIndex.get(spread[i] + 1));
+        }
+        assertEquals(IdIndex.ABSENT, emptyIndex.get(0));
+    }
+
+    @Test
+    void testTableLinksRowsByIdLikeLinksOfUnits() throws IOException {
+        // given
+        AdminUnitList list = new AdminUnitList();
+        list.read("admin-units.csv");
+        List<AdminUnit> units = list.filter(unit -> unit.adminLevel <= 6 || unit.name.startsWith("K")).units;
+        Map<AdminUnit, Integer> rowOf = new IdentityHashMap<>();
+        for (int i = 0; i < units.size(); i++) {
+            rowOf.put(units.get(i), i);
+        }
+
+        // when
+        AdminUnitTable table = AdminUnitTable.of(units);
+
+        // then
+        for (int row = 0; row < units.size(); row++) {
+            AdminUnit unit = units.get(row);
+            assertEquals(rowOf.getOrDefault(unit.parent, -1).intValue(), table.parent(row));
+            List<Integer> children = new ArrayList<>();
+            if (unit.children != null) {
+                for (AdminUnit child : unit.children) {
+                    if (rowOf.containsKey(child)) {
+                        children.add(rowOf.get(child));
+                    }
+                }
+            }
+            List<Integer> tableChildren = new ArrayList<>();
+            for (int i = table.childOffset(row); i < table.childOffset(row + 1); i++) {
+                tableChildren.add(table.child(i));
+            }
+            assertEquals(children, tableChildren);
+        }
+    }
+
+    @Test
+    void testTableLinksUnitsWithoutIds() {
+        // given
+        AdminUnit parent = new AdminUnit("parent", 4, 0, 0, 0, null, new BoundingBox());
+        AdminUnit first = new AdminUnit("first", 6, 0, 0, 0, parent, new BoundingBox());
+        AdminUnit second = new AdminUnit("second", 6, 0, 0, 0, parent, new BoundingBox());
+        AdminUnit outside = new AdminUnit("outside", 6, 0, 0, 0, parent, new BoundingBox());
+        parent.setChildren(List.of(first, outside, second));
+
+        // when
+        AdminUnitTable table = AdminUnitTable.of(List.of(second, parent, first));
+
+        // then
+        assertEquals(1, table.parent(0));
+        assertEquals(-1, table.parent(1));
+        assertEquals(1, table.parent(2));
+        assertEquals(0, table.childOffset(1));
+        assertEquals(2, table.childOffset(2));
+        assertEquals(2, table.child(0));
+        assertEquals(0, table.child(1));
+    }
+}
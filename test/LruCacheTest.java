@@ -0,0 +1,33 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LruCacheTest {
+    @Test
+    void testLruCacheEvictsLeastRecentlyUsedEntry() {
+        // given
+        LruCache<String, String> cache = new LruCache<>(2);
+        List<String> created = new ArrayList<>();
+        Function<String, String> factory = key -> {
+            created.add(key);
+            return key.toUpperCase();
+        };
+
+        // when
+        cache.get("a", factory);
+        cache.get("b", factory);
+        cache.get("a", factory);
+        cache.get("c", factory);
+        String a = cache.get("a", factory);
+        String b = cache.get("b", factory);
+
+        // then
+        assertEquals("A", a);
+        assertEquals("B", b);
+        assertEquals(List.of("a", "b", "c", "b"), created);
+    }
+}
@@ -0,0 +1,68 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NeighborGraphTest {
+    private static List<String> names(AdminUnitList list) {
+        List<String> names = new ArrayList<>();
+        for (AdminUnit unit : list.units) {
+            names.add(unit.id + " " + unit.name);
+        }
+        return names;
+    }
+
+    @Test
+    void testGraphMatchesGetNeighbors() throws IOException {
+        // given
+        AdminUnitList list = new AdminUnitList();
+        list.read("admin-units.csv");
+
+        // when
+        NeighborGraph graph = list.getNeighborGraph(15);
+
+        // then
+        for (int i = 0; i < list.units.size(); i += 40) {
+            AdminUnit unit = list.units.get(i);
+            if (unit.adminLevel == 8 && unit.bbox.isEmpty()) {
+                assertEquals(0, graph.degree(i));
+                continue;
+            }
+            assertEquals(names(list.getNeighbors(unit, 15)), names(graph.getNeighbors(i)));
+        }
+    }
+
+    @Test
+    void testGraphListsAreSortedAndSymmetric() throws IOException {
+        // given
+        AdminUnitList list = new AdminUnitList();
+        list.read("admin-units.csv");
+        AdminUnitList tableList = new AdminUnitList(AdminUnitTable.of(list.units));
+
+        // when
+        NeighborGraph graph = list.getNeighborGraph(15);
+        NeighborGraph tableGraph = tableList.getNeighborGraph(15);
+
+        // then
+        int[] offsets = graph.getOffsets();
+        int[] neighbors = graph.getNeighbors();
+        assertEquals(list.units.size() + 1, offsets.length);
+        assertEquals(0, offsets[0]);
+        assertEquals(neighbors.length, offsets[list.units.size()]);
+        for (int i = 0; i < list.units.size(); i++) {
+            assertTrue(offsets[i] <= offsets[i + 1]);
+            for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+                assertTrue(j == offsets[i] || neighbors[j - 1] < neighbors[j]);
+                assertTrue(neighbors[j] != i);
+                int[] back = graph.neighborPositions(neighbors[j]);
+                assertTrue(Arrays.binarySearch(back, i) >= 0);
+            }
+        }
+        assertTrue(Arrays.equals(offsets, tableGraph.getOffsets()));
+        assertTrue(Arrays.equals(neighbors, tableGraph.getNeighbors()));
+    }
+}
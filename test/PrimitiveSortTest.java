@@ -0,0 +1,60 @@
+import org.junit.jupiter.api.Test;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrimitiveSortTest {
+    @Test
+    void testPrimitiveSortOrdersRowsLikeListSort() {
+        // given
+        double[] specials = {Double.NaN, -0.0, 0.0, 1.5, -1.5, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY};
+        String[] words = {"", "a", "ab", "abcd", "abcde", "abcdf", "Ż", "z", "Zebra", "łódź", "Łódź", "lody"};
+        Random random = new Random(7);
+        Collator collator = Collator.getInstance(new Locale("pl"));
+
+        for (int n : new int[]{0, 1, 2, 7, 31, 32, 33, 500}) {
+            double[] doubles = new double[n];
+            long[] longs = new long[n];
+            String[] strings = new String[n];
+            for (int i = 0; i < n; i++) {
+                doubles[i] = specials[random.nextInt(specials.length)];
+                longs[i] = random.nextBoolean() ? random.nextInt(5) - 2 : random.nextLong();
+                strings[i] = words[random.nextInt(words.length)];
+            }
+            long[] doubleKeys = Arrays.stream(doubles).mapToLong(PrimitiveSort::sortableKey).toArray();
+
+            // when
+            int[] byDouble = PrimitiveSort.order(doubleKeys);
+            int[] byLong = PrimitiveSort.order(longs);
+            int[] byString = PrimitiveSort.order(strings);
+            int[] byCollator = PrimitiveSort.order(strings, collator);
+
+            // then
+            assertEquals(stableOrder(n, (a, b) -> Double.compare(doubles[a], doubles[b])), boxed(byDouble));
+            assertEquals(stableOrder(n, (a, b) -> Long.compare(longs[a], longs[b])), boxed(byLong));
+            assertEquals(stableOrder(n, (a, b) -> strings[a].compareTo(strings[b])), boxed(byString));
+            assertEquals(stableOrder(n, (a, b) -> collator.compare(strings[a], strings[b])), boxed(byCollator));
+        }
+    }
+
+    /**
+     * Zwraca wiersze 0..n-1 posortowane przez List.sort() (stabilnie) według cmp
+     */
+    private static List<Integer> stableOrder(int n, Comparator<Integer> cmp) {
+        List<Integer> rows = new ArrayList<>(IntStream.range(0, n).boxed().toList());
+        rows.sort(cmp);
+        return rows;
+    }
+
+    private static List<Integer> boxed(int[] rows) {
+        return Arrays.stream(rows).boxed().toList();
+    }
+}